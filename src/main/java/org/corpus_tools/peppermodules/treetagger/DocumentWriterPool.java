@@ -0,0 +1,286 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes documents to their files in a fixed number of threads, while the
+ * mappers convert them. A mapper converts its document into the stream
+ * returned by {@link #open(String, FileOpener)}, which hands the converted
+ * bytes over in blocks of {@link #BLOCK_SIZE} bytes. The blocks of all
+ * documents wait in a queue of a fixed size, when it is full, mappers wait
+ * until a block is written. So the memory taken by converted documents is
+ * bounded, however large the documents are. Closing the stream waits until
+ * the document is written, so that a failure is reported for the document
+ * and the document graph is not needed after the mapper is done.
+ */
+public class DocumentWriterPool {
+	private static final Logger logger = LoggerFactory.getLogger(DocumentWriterPool.class);
+
+	/** Number of bytes handed over to the writer threads at once. */
+	public static final int BLOCK_SIZE = 64 * 1024;
+
+	/** Opens the file a document is written to. */
+	public interface FileOpener {
+		OutputStream open() throws IOException;
+	}
+
+	private final ExecutorService executor;
+	/** Free places in the queue of blocks waiting for a writer thread. */
+	private final Semaphore freeBlocks;
+
+	/**
+	 * @param numOfThreads
+	 *            the number of threads writing documents
+	 * @param queueSize
+	 *            the number of blocks waiting for a writer thread
+	 */
+	public DocumentWriterPool(int numOfThreads, int queueSize) {
+		if (numOfThreads < 1) {
+			throw new PepperModuleException("Cannot create writer pool with " + numOfThreads + " threads.");
+		}
+		if (queueSize < 1) {
+			throw new PepperModuleException("Cannot create writer pool with a queue of " + queueSize + " blocks.");
+		}
+		freeBlocks = new Semaphore(queueSize);
+		final AtomicInteger numOfCreatedThreads = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(numOfThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				final Thread thread = new Thread(runnable,
+						"treetagger-writer-" + numOfCreatedThreads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns a stream, into which a mapper converts a document, which is
+	 * written by the writer threads. The file is opened by a writer thread
+	 * when the first block is written.
+	 * 
+	 * @param name
+	 *            the name of the document in messages
+	 */
+	public OutputStream open(String name, FileOpener opener) {
+		return new DocumentOutput(name, opener);
+	}
+
+	/**
+	 * Stops the threads after the documents being written.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.debug("Still writing documents.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PepperModuleException("Interrupted while waiting for documents to be written.", e);
+		}
+	}
+
+	/**
+	 * The stream of a document. Blocks are filled by the mapper and written in
+	 * their order by at most one writer thread at a time, which only runs
+	 * while blocks are waiting, so that writer threads never wait for a
+	 * mapper.
+	 */
+	private class DocumentOutput extends OutputStream {
+		private final String name;
+		private final FileOpener opener;
+		/** Counted down when the file is closed or writing failed. */
+		private final CountDownLatch written = new CountDownLatch(1);
+
+		// used by the mapper
+		private byte[] block = new byte[BLOCK_SIZE];
+		private int blockLength = 0;
+		private boolean closed = false;
+
+		// guarded by this
+		private final Queue<ByteBuffer> pendingBlocks = new ArrayDeque<>();
+		private boolean draining = false;
+		private boolean lastBlockQueued = false;
+
+		// used by one writer thread at a time
+		private OutputStream out = null;
+		private volatile Exception failure = null;
+
+		DocumentOutput(String name, FileOpener opener) {
+			this.name = name;
+			this.opener = opener;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			ensureOpen();
+			if (blockLength == BLOCK_SIZE) {
+				handOver(false);
+			}
+			block[blockLength++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			ensureOpen();
+			while (length > 0) {
+				if (blockLength == BLOCK_SIZE) {
+					handOver(false);
+				}
+				final int copied = Math.min(length, BLOCK_SIZE - blockLength);
+				System.arraycopy(bytes, offset, block, blockLength, copied);
+				blockLength += copied;
+				offset += copied;
+				length -= copied;
+			}
+		}
+
+		/**
+		 * Hands the last block over and waits until the document is written.
+		 * 
+		 * @throws IOException
+		 *             if the document could not be written
+		 */
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (failure == null) {
+				handOver(true);
+			}
+			try {
+				written.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing document '" + name + "'.");
+			}
+			checkFailure();
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Cannot write document '" + name + "', because its stream is closed.");
+			}
+		}
+
+		private void checkFailure() throws IOException {
+			if (failure != null) {
+				throw new IOException("Cannot write document '" + name + "'. ", failure);
+			}
+		}
+
+		/**
+		 * Queues the current block, which waits for a free place in the queue,
+		 * and makes sure a writer thread writes it.
+		 */
+		private void handOver(boolean last) throws IOException {
+			checkFailure();
+			try {
+				freeBlocks.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing document '" + name + "'.");
+			}
+			final boolean startDraining;
+			synchronized (this) {
+				pendingBlocks.add(ByteBuffer.wrap(block, 0, blockLength));
+				lastBlockQueued = last;
+				startDraining = !draining;
+				draining = true;
+			}
+			block = last ? null : new byte[BLOCK_SIZE];
+			blockLength = 0;
+			if (startDraining) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					throw new PepperModuleException(
+							"Cannot write document '" + name + "', because the writer pool was shut down.", e);
+				}
+			}
+		}
+
+		/**
+		 * Writes the waiting blocks. After a failure, the blocks are dropped.
+		 */
+		private void drain() {
+			while (true) {
+				final ByteBuffer pending;
+				final boolean last;
+				synchronized (this) {
+					pending = pendingBlocks.poll();
+					if (pending == null) {
+						draining = false;
+						return;
+					}
+					last = lastBlockQueued && pendingBlocks.isEmpty();
+				}
+				try {
+					if (failure == null) {
+						if (out == null) {
+							out = opener.open();
+						}
+						out.write(pending.array(), pending.position(), pending.remaining());
+						if (last) {
+							out.close();
+							written.countDown();
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					fail(e);
+				} finally {
+					freeBlocks.release();
+				}
+			}
+		}
+
+		private void fail(Exception e) {
+			failure = e;
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException closeFailure) {
+					e.addSuppressed(closeFailure);
+				}
+			}
+			written.countDown();
+		}
+	}
+}
@@ -22,6 +22,8 @@ import org.corpus_tools.pepper.core.SelfTestDesc;
 import org.corpus_tools.pepper.impl.PepperExporterImpl;
 import org.corpus_tools.pepper.modules.PepperExporter;
 import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.peppermodules.treetagger.mapper.AnnotationDecisionTable;
 import org.corpus_tools.peppermodules.treetagger.mapper.Salt2TreetaggerMapper;
 import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.graph.Identifier;
@@ -37,6 +39,13 @@ import org.osgi.service.component.annotations.Component;
  */
 @Component(name = "TreetaggerExporterComponent", factory = "PepperExporterComponentFactory")
 public class TreetaggerExporter extends PepperExporterImpl implements PepperExporter {
+	/** Snapshot of the properties, which is shared by all mappers. */
+	private TreetaggerExporterSettings settings = null;
+	/** Decides how token annotations are exported, shared by all mappers. */
+	private final AnnotationDecisionTable annotationDecisionTable = new AnnotationDecisionTable();
+	/** Writes the documents, if there are writer threads. */
+	private DocumentWriterPool writerPool = null;
+
 	public TreetaggerExporter() {
 		super();
 		// setting name of module
@@ -70,6 +79,50 @@ public class TreetaggerExporter extends PepperExporterImpl implements PepperExpo
 		if (identifier.getIdentifiableElement() instanceof SDocument) {
 			mapper.setResourceURI(getIdentifier2ResourceTable().get(identifier));
 		}
+		mapper.setSettings(getSettings());
+		mapper.setAnnotationDecisionTable(annotationDecisionTable);
+		mapper.setWriterPool(getWriterPool());
 		return (mapper);
 	}
+
+	/**
+	 * Returns the settings of this export, which are taken from the properties
+	 * when they are needed first.
+	 */
+	private synchronized TreetaggerExporterSettings getSettings() {
+		if (settings == null) {
+			settings = ((TreetaggerExporterProperties) getProperties()).createSettings();
+		}
+		return settings;
+	}
+
+	/**
+	 * Returns the pool writing the documents, which is created when it is
+	 * needed first, or <code>null</code>, if the mappers write the documents.
+	 */
+	private synchronized DocumentWriterPool getWriterPool() {
+		if (writerPool == null && getSettings().getWriterThreads() > 0) {
+			writerPool = new DocumentWriterPool(getSettings().getWriterThreads(), getSettings().getWriterQueueSize());
+		}
+		return writerPool;
+	}
+
+	/**
+	 * Stops the threads of the writer pool, if there is one.
+	 */
+	@Override
+	public void end() throws PepperModuleException {
+		try {
+			super.end();
+		} finally {
+			final DocumentWriterPool pool;
+			synchronized (this) {
+				pool = writerPool;
+				writerPool = null;
+			}
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
 }
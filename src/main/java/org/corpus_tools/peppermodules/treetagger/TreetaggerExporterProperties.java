@@ -47,6 +47,18 @@ public class TreetaggerExporterProperties extends PepperModuleProperties {
 	/** Choose a segmentation instead of exporting all tokens */
 	public static final String PROP_SEG_NAME = "treetagger.segmentation.name";
 
+	/**
+	 * Number of threads writing documents to their files. With 0, each
+	 * document is written by its mapper.
+	 */
+	public static final String PROP_WRITER_THREADS = "treetagger.output.writerThreads";
+
+	/**
+	 * Number of converted blocks of 64 KiB waiting for a writer thread, before
+	 * mappers wait for the writers.
+	 */
+	public static final String PROP_WRITER_QUEUE_SIZE = "treetagger.output.writerQueueSize";
+
 	public TreetaggerExporterProperties() {
 		this.addProperty(new PepperModuleProperty<String>(PROP_FILE_EXTENSION, String.class, "This property determines the ending of TreeTagger files, which are exported. The default value is '" + FILE_ENDING + "'.", FILE_ENDING, false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_EXPORT_ANNOS, String.class, "If set true, each AnyAnnotation of tokens will appear in the output file.", false));
@@ -54,6 +66,8 @@ public class TreetaggerExporterProperties extends PepperModuleProperties {
 		this.addProperty(new PepperModuleProperty<Boolean>(PROP_REPLACE_GENERIC_SPAN_NAMES, Boolean.class, "If set true, generic span names like 'sSpan123' will be replaced with the first annotation 	of the span found. If the span has no annotations, the generic name will not be replaced.", false, false));
 		this.addProperty(new PepperModuleProperty<String>(PROP_META_TAG, String.class, "Sets the meta tag used to mark the TreeTagger document in the output file(s).", "meta", false));
 		this.addProperty(PepperModuleProperty.create().withName(PROP_SEG_NAME).withType(String.class).withDescription("Choose a segmentation instead of exporting all tokens").withDefaultValue(null).build());
+		this.addProperty(new PepperModuleProperty<Integer>(PROP_WRITER_THREADS, Integer.class, "Number of threads writing documents to their files, while the mappers convert them. With 0, each document is written by its mapper.", 0, false));
+		this.addProperty(new PepperModuleProperty<Integer>(PROP_WRITER_QUEUE_SIZE, Integer.class, "Number of converted blocks of 64 KiB waiting for a writer thread. When the queue is full, mappers wait for the writers, which bounds the memory taken by converted documents.", 16, false));
 	}
 
 	/** Returns file ending for eported files. **/
@@ -93,6 +107,14 @@ public class TreetaggerExporterProperties extends PepperModuleProperties {
 		return ((Boolean) this.getProperty(PROP_REPLACE_GENERIC_SPAN_NAMES).getValue());
 	}
 	
+	/**
+	 * Returns a snapshot of the current property values, which does not
+	 * change when properties are set later on.
+	 */
+	public TreetaggerExporterSettings createSettings() {
+		return new TreetaggerExporterSettings(this);
+	}
+
 	/**
 	 * Get segmentation name for segmentation to choose.
 	 * @return null if no name provided, else segmentation name
@@ -101,4 +123,14 @@ public class TreetaggerExporterProperties extends PepperModuleProperties {
 		Object segName = getProperty(PROP_SEG_NAME).getValue();
 		return segName == null? null : (String) segName;
 	}
+
+	public int getWriterThreads() {
+		final Object writerThreads = getProperty(PROP_WRITER_THREADS).getValue();
+		return writerThreads instanceof Integer ? (Integer) writerThreads : 0;
+	}
+
+	public int getWriterQueueSize() {
+		final Object writerQueueSize = getProperty(PROP_WRITER_QUEUE_SIZE).getValue();
+		return writerQueueSize instanceof Integer ? (Integer) writerQueueSize : 16;
+	}
 }
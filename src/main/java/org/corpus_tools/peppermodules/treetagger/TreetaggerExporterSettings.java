@@ -0,0 +1,79 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the {@link TreetaggerExporterProperties}, which is
+ * created once per export and shared by all mappers.
+ */
+public final class TreetaggerExporterSettings {
+	private final String segmentationName;
+	private final boolean replaceGenericSpanNames;
+	private final int writerThreads;
+	private final int writerQueueSize;
+	private final Map<Object, Object> writerOptions;
+
+	TreetaggerExporterSettings(TreetaggerExporterProperties props) {
+		segmentationName = props.getSegmentationName();
+		replaceGenericSpanNames = props.isReplaceGenericSpanNamesProperty();
+		writerThreads = props.getWriterThreads();
+		writerQueueSize = props.getWriterQueueSize();
+		final Properties options = new Properties();
+		options.putAll(props.getProperties());
+		writerOptions = Collections.unmodifiableMap(options);
+	}
+
+	/**
+	 * Returns the name of the segmentation to export or <code>null</code>, if
+	 * all tokens are exported.
+	 */
+	public String getSegmentationName() {
+		return segmentationName;
+	}
+
+	public boolean isReplaceGenericSpanNames() {
+		return replaceGenericSpanNames;
+	}
+
+	/**
+	 * Returns the number of threads writing documents, 0 if each mapper writes
+	 * its document itself.
+	 */
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	/**
+	 * Returns the number of converted blocks waiting for a writer thread.
+	 */
+	public int getWriterQueueSize() {
+		return writerQueueSize;
+	}
+
+	/**
+	 * Returns all properties as options for the
+	 * {@link org.corpus_tools.peppermodules.treetagger.model.serialization.TabWriter}.
+	 */
+	public Map<Object, Object> getWriterOptions() {
+		return writerOptions;
+	}
+}
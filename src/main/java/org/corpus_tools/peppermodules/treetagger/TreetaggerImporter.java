@@ -17,20 +17,33 @@
  */
 package org.corpus_tools.peppermodules.treetagger;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.corpus_tools.pepper.common.PepperConfiguration;
 import org.corpus_tools.pepper.core.SelfTestDesc;
 import org.corpus_tools.pepper.impl.PepperImporterImpl;
 import org.corpus_tools.pepper.modules.PepperImporter;
 import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
 import org.corpus_tools.peppermodules.treetagger.mapper.Treetagger2SaltMapper;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
 import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.Deserializer;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.DocumentIndex;
+import org.corpus_tools.salt.common.SCorpus;
+import org.corpus_tools.salt.common.SCorpusGraph;
 import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.graph.Identifier;
 import org.eclipse.emf.common.util.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.osgi.service.component.annotations.Component;
 
 import com.google.common.base.Strings;
@@ -44,10 +57,31 @@ import com.google.common.base.Strings;
  */
 @Component(name = "TreetaggerImporterComponent", factory = "PepperImporterComponentFactory")
 public class TreetaggerImporter extends PepperImporterImpl implements PepperImporter {
+	private static final Logger logger = LoggerFactory.getLogger(TreetaggerImporter.class);
 	// ---------------------------------------------------------------------------------------
 	public static final String[] TREETAGGER_FILE_ENDINGS = { "treetagger", "tab", "tt", "txt", "xml" };
 	private static final Pattern TREETAGGER_MATCH_PATTERN = Pattern.compile("[a-zA-Z0-9]+(\t[a-zA-Z0-9]+)*");
 
+	/**
+	 * Index of the document within its file for all documents of files
+	 * containing more than one document.
+	 */
+	private final Map<Identifier, Integer> documentIndexes = new HashMap<>();
+	/** Document indexes of such files, if their encoding allows indexing. */
+	private final Map<URI, DocumentIndex> documentIndexesByFile = new HashMap<>();
+	/**
+	 * Such files without index, which are parsed as a whole and kept until the
+	 * import ends.
+	 */
+	private final Map<URI, MultiDocumentFile> multiDocumentFiles = new ConcurrentHashMap<>();
+	/** Snapshot of the properties, which is shared by all mappers. */
+	private TreetaggerImporterSettings settings = null;
+	/**
+	 * Annotation names and values and span names of all documents of this
+	 * import.
+	 */
+	private final StringPool stringPool = new StringPool();
+
 	public TreetaggerImporter() {
 		super();
 		// setting name of module
@@ -89,6 +123,57 @@ public class TreetaggerImporter extends PepperImporterImpl implements PepperImpo
 						.appendSegment("expected"));
 	}
 
+	/**
+	 * Imports the corpus structure like the default implementation, but a file
+	 * containing several documents marked by the meta tag is represented by
+	 * one {@link SDocument} per contained document instead of one for the
+	 * whole file. The documents are named like by the {@link Deserializer},
+	 * file name plus running number, and are mapped separately. The documents
+	 * are located by a {@link DocumentIndex}, so that each mapper only parses
+	 * its own document. The documents are counted by the pre-scan building the
+	 * index or, if the encoding does not allow an index, by a scan of the tag
+	 * lines. Both stop at the start of a second document, so that a file with
+	 * a single document is not indexed. The files are scanned in parallel.
+	 */
+	@Override
+	public void importCorpusStructure(SCorpusGraph corpusGraph) throws PepperModuleException {
+		super.importCorpusStructure(corpusGraph);
+		final List<SDocument> sDocuments = new ArrayList<>();
+		final List<URI> uris = new ArrayList<>();
+		for (SDocument sDocument : corpusGraph.getDocuments()) {
+			final URI uri = getIdentifier2ResourceTable().get(sDocument.getIdentifier());
+			if (uri != null) {
+				sDocuments.add(sDocument);
+				uris.add(uri);
+			}
+		}
+		final List<ScannedFile> scannedFiles = uris.parallelStream().map(this::scanFile)
+				.collect(Collectors.toList());
+		for (int fileIndex = 0; fileIndex < sDocuments.size(); fileIndex++) {
+			final SDocument sDocument = sDocuments.get(fileIndex);
+			final Identifier identifier = sDocument.getIdentifier();
+			final URI uri = uris.get(fileIndex);
+			final DocumentIndex index = scannedFiles.get(fileIndex).index;
+			final int numOfDocuments = scannedFiles.get(fileIndex).numOfDocuments;
+			if (numOfDocuments > 1) {
+				if (index != null) {
+					documentIndexesByFile.put(uri, index);
+				} else {
+					multiDocumentFiles.put(uri, new MultiDocumentFile(uri, numOfDocuments));
+				}
+				final SCorpus corpus = corpusGraph.getCorpus(sDocument);
+				getIdentifier2ResourceTable().remove(identifier);
+				corpusGraph.removeNode(sDocument);
+				for (int documentIndex = 0; documentIndex < numOfDocuments; documentIndex++) {
+					final SDocument part = corpusGraph.createDocument(corpus,
+							sDocument.getName() + "_" + (documentIndex + 1));
+					getIdentifier2ResourceTable().put(part.getIdentifier(), uri);
+					documentIndexes.put(part.getIdentifier(), documentIndex);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Creates a mapper of type {@link PAULA2SaltMapper}.
 	 * {@inheritDoc PepperModule#createPepperMapper(Identifier)}
@@ -98,32 +183,127 @@ public class TreetaggerImporter extends PepperImporterImpl implements PepperImpo
 		Treetagger2SaltMapper mapper = new Treetagger2SaltMapper();
 		if (identifier.getIdentifiableElement() instanceof SDocument) {
 			URI uri = getIdentifier2ResourceTable().get(identifier);
-			Document tDocument = this.loadFromFile(uri);
+			final Integer documentIndex = documentIndexes.get(identifier);
+			final Document tDocument;
+			if (documentIndex == null) {
+				tDocument = loadFromFile(uri);
+			} else if (documentIndexesByFile.containsKey(uri)) {
+				tDocument = createDeserializer().from(documentIndexesByFile.get(uri), documentIndex);
+			} else {
+				tDocument = multiDocumentFiles.get(uri).take(documentIndex);
+			}
 			if (tDocument == null) {
 				mapper = null;
 			} else {
 				mapper.setTTDocument(tDocument);
+				mapper.setSettings(getSettings());
 			}
 
 		}
 		return (mapper);
 	}
 
+	/**
+	 * Returns the settings of this import, which are taken from the properties
+	 * when they are needed first.
+	 */
+	private synchronized TreetaggerImporterSettings getSettings() {
+		if (settings == null) {
+			settings = ((TreetaggerImporterProperties) getProperties()).createSettings();
+		}
+		return settings;
+	}
+
+	private String getMetaTag() {
+		return getSettings().getMetaTag();
+	}
+
+	private String getFileEncoding() {
+		return getSettings().getFileEncoding();
+	}
+
+	private Deserializer.Builder createDeserializer() {
+		final TreetaggerImporterSettings settings = getSettings();
+		return Treetagger.deserialize().withFileEncoding(settings.getFileEncoding())
+				.withMetaTagName(settings.getMetaTag()).withColumnNames(settings.getColumnNames())
+				.withParallelism(settings.getParallelism()).withStringPool(stringPool)
+				.withColumnarDocuments(settings.getColumnarDocuments());
+	}
+
 	private Document loadFromFile(URI uri) {
 		if (uri == null) {
 			return null;
 		}
-		final List<String> columnNames = ((TreetaggerImporterProperties) getProperties()).getColumnNames();
-		final String metaTag = getProperties().getProperty(TreetaggerImporterProperties.PROP_META_TAG).getValue()
-				.toString();
-		final String fileEncoding = getProperties().getProperty(TreetaggerImporterProperties.PROP_FILE_ENCODING)
-				.getValue().toString();
-		final List<Document> documents = Treetagger.deserialize().withFileEncoding(fileEncoding)
-				.withMetaTagName(metaTag).withColumnNames(columnNames).from(uri);
+		final List<Document> documents = createDeserializer().from(uri);
 
 		if (documents.isEmpty()) {
 			return null;
 		}
 		return (documents.get(0));
 	}
+
+	/**
+	 * Releases the documents of files without index, which were not mapped,
+	 * e.g. because their mapper failed.
+	 */
+	@Override
+	public void end() throws PepperModuleException {
+		try {
+			super.end();
+		} finally {
+			multiDocumentFiles.clear();
+		}
+	}
+
+	/**
+	 * Returns the index of the file or, if its encoding does not allow an
+	 * index, only the number of its documents.
+	 */
+	private ScannedFile scanFile(URI uri) {
+		final DocumentIndex index = DocumentIndex.load(uri, getFileEncoding(), getMetaTag(),
+				getSettings().getWriteDocumentIndex());
+		if (index != null) {
+			return new ScannedFile(index, index.size());
+		}
+		return new ScannedFile(null, DocumentIndex.countDocuments(uri, getFileEncoding(), getMetaTag()));
+	}
+
+	private static class ScannedFile {
+		private final DocumentIndex index;
+		private final int numOfDocuments;
+
+		ScannedFile(DocumentIndex index, int numOfDocuments) {
+			this.index = index;
+			this.numOfDocuments = numOfDocuments;
+		}
+	}
+
+	/**
+	 * A file containing several documents, which cannot be indexed. The file
+	 * is parsed once, when the first of its documents is taken, and the
+	 * remaining documents are kept until their mappers are created or the
+	 * import ends. Files are locked separately, so that they can be parsed at
+	 * the same time.
+	 */
+	private class MultiDocumentFile {
+		private final URI uri;
+		private final int numOfDocuments;
+		private List<Document> documents = null;
+
+		MultiDocumentFile(URI uri, int numOfDocuments) {
+			this.uri = uri;
+			this.numOfDocuments = numOfDocuments;
+		}
+
+		synchronized Document take(int documentIndex) {
+			if (documents == null) {
+				documents = createDeserializer().from(uri);
+				if (documents.size() != numOfDocuments) {
+					logger.warn("Found " + documents.size() + " documents in file '" + uri + "', but " + numOfDocuments
+							+ " were counted before. Only the counted documents, which were found, are imported.");
+				}
+			}
+			return documentIndex < documents.size() ? documents.set(documentIndex, null) : null;
+		}
+	}
 }
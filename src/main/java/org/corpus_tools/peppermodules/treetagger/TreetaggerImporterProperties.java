@@ -27,6 +27,8 @@ import java.util.regex.Pattern;
 
 import org.corpus_tools.pepper.modules.PepperModuleProperties;
 import org.corpus_tools.pepper.modules.PepperModuleProperty;
+import org.corpus_tools.peppermodules.treetagger.model.impl.ColumnarDocument;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.DocumentIndex;
 import org.corpus_tools.salt.common.SToken;
 
 public class TreetaggerImporterProperties extends PepperModuleProperties {
@@ -118,6 +120,24 @@ public class TreetaggerImporterProperties extends PepperModuleProperties {
 	 */
 	public static final String PROP_ANNO_REPLACEMENTS = PREFIX + "replacementsInAnnos";
 
+	/**
+	 * Number of threads parsing a single input file. With more than one thread,
+	 * the file is memory-mapped and parsed in chunks in parallel.
+	 */
+	public static final String PROP_PARALLELISM = PREFIX + "parallelism";
+
+	/**
+	 * If true, documents are kept in a columnar representation until they are
+	 * mapped, see {@link ColumnarDocument}.
+	 */
+	public static final String PROP_COLUMNAR_DOCUMENTS = PREFIX + "columnarDocuments";
+
+	/**
+	 * If true, the index of a file containing several documents is cached in
+	 * a sidecar file next to it, see {@link DocumentIndex}.
+	 */
+	public static final String PROP_WRITE_DOCUMENT_INDEX = PREFIX + "writeDocumentIndex";
+
 	public TreetaggerImporterProperties() {
 		this.addProperty(new PepperModuleProperty<Boolean>(PROP_ANNOTATE_UNANNOTATED_SPANS, Boolean.class,
 				"If set true, this switch will cause the module to annotate all spans without attributes with their name as attribute and value.",
@@ -187,6 +207,17 @@ public class TreetaggerImporterProperties extends PepperModuleProperties {
 		this.addProperty(PepperModuleProperty.create().withName(PROP_TEXT_NAME).withType(String.class)
 				.withDescription("Name of the text").isRequired(false).withDefaultValue(null).build());
 
+		this.addProperty(new PepperModuleProperty<Integer>(PROP_PARALLELISM, Integer.class,
+				"Number of threads parsing a single input file. With more than one thread, the file is memory-mapped and parsed in chunks in parallel, which requires UTF-8 or a single byte encoding.",
+				1, false));
+
+		this.addProperty(new PepperModuleProperty<Boolean>(PROP_COLUMNAR_DOCUMENTS, Boolean.class,
+				"If set true, the tokens of a document are kept as dictionary-encoded columns instead of one object per token and annotation until the document is mapped, which takes much less memory for large files.",
+				false, false));
+
+		this.addProperty(new PepperModuleProperty<Boolean>(PROP_WRITE_DOCUMENT_INDEX, Boolean.class,
+				"If set true, the index of the documents of a file containing several documents is cached in a file next to it, which has the name of the file plus '" + DocumentIndex.SIDECAR_ENDING + "'. If set false, no file is written to the corpus and the index is built on each import.",
+				true, false));
 	}
 
 	public Boolean getAnnotateUnannotatedSpans() {
@@ -294,39 +325,33 @@ public class TreetaggerImporterProperties extends PepperModuleProperties {
 		return (separator);
 	}
 
-	/**
-	 * a map of Strings to be replaced and the corresponding replacement String.
-	 *
-	 */
-	private Map<String, String> replacementMapping = null;
-
 	/**
 	 * Returns a map of Strings to be escaped and the corresponding replacement
 	 * Strings. This map is computed from the property
 	 * {@link #PROP_TOKEN_REPLACEMENTS}, which has the form: \"REPLACED_STRING\" :
 	 * \"REPLACEMENT\" (, \"REPLACED_STRING\" : \"REPLACEMENT\"). It is applied to
 	 * token values, and if {@link #PROP_ANNO_REPLACEMENTS} is true, then also to
-	 * annotation values.
+	 * annotation values. The map is computed anew on each call, so that it
+	 * follows changes of the property.
 	 *
 	 * @return
 	 */
 	public Map<String, String> getReplacementMapping() {
-		if (replacementMapping == null) {
-			PepperModuleProperty<String> prop = (PepperModuleProperty<String>) getProperty(PROP_TOKEN_REPLACEMENTS);
-
-			String replacements = prop.getValue();
-			if ((replacements != null) && (!replacements.isEmpty())) {
-				replacementMapping = new Hashtable<String, String>();
-
-				String[] singleMappings = replacements.split(",");
-				if (singleMappings.length > 0) {
-					for (String singleMapping : singleMappings) {
-						String[] parts = singleMapping.split(":");
-						{
-							if (parts.length == 2) {
-								replacementMapping.put(parts[0].trim().replace("\"", ""),
-										parts[1].trim().replace("\"", ""));
-							}
+		Map<String, String> replacementMapping = null;
+		PepperModuleProperty<String> prop = (PepperModuleProperty<String>) getProperty(PROP_TOKEN_REPLACEMENTS);
+
+		String replacements = prop.getValue();
+		if ((replacements != null) && (!replacements.isEmpty())) {
+			replacementMapping = new Hashtable<String, String>();
+
+			String[] singleMappings = replacements.split(",");
+			if (singleMappings.length > 0) {
+				for (String singleMapping : singleMappings) {
+					String[] parts = singleMapping.split(":");
+					{
+						if (parts.length == 2) {
+							replacementMapping.put(parts[0].trim().replace("\"", ""),
+									parts[1].trim().replace("\"", ""));
 						}
 					}
 				}
@@ -339,6 +364,27 @@ public class TreetaggerImporterProperties extends PepperModuleProperties {
 		return ((Boolean) this.getProperty(PROP_ANNO_REPLACEMENTS).getValue());
 	}
 
+	/**
+	 * Returns a snapshot of the current property values, which does not
+	 * change when properties are set later on.
+	 */
+	public TreetaggerImporterSettings createSettings() {
+		return new TreetaggerImporterSettings(this);
+	}
+
+	public int getParallelism() {
+		final Object parallelism = getProperty(PROP_PARALLELISM).getValue();
+		return parallelism instanceof Integer ? (Integer) parallelism : 1;
+	}
+
+	public Boolean getColumnarDocuments() {
+		return ((Boolean) this.getProperty(PROP_COLUMNAR_DOCUMENTS).getValue());
+	}
+
+	public Boolean getWriteDocumentIndex() {
+		return ((Boolean) this.getProperty(PROP_WRITE_DOCUMENT_INDEX).getValue());
+	}
+
 	public String getTextName() {
 		Object val = this.getProperty(PROP_TEXT_NAME).getValue();
 		return val instanceof String ? (String) val : null;
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.corpus_tools.peppermodules.treetagger.mapper.StringReplacer;
+
+/**
+ * Immutable snapshot of the {@link TreetaggerImporterProperties}, in which all
+ * comma separated values are already split. It is created once per import and
+ * shared by all mappers, so that mapping does not look up properties.
+ */
+public final class TreetaggerImporterSettings {
+	private final String metaTag;
+	private final String fileEncoding;
+	private final List<String> columnNames;
+	private final int parallelism;
+	private final boolean columnarDocuments;
+	private final boolean writeDocumentIndex;
+	private final String separatorAfterToken;
+	private final String textName;
+	private final StringReplacer replacer;
+	private final boolean replaceInAnnos;
+	private final boolean annotateUnannotatedSpans;
+	private final boolean annotateAllSpansWithName;
+	private final String spanAnnotationNamespace;
+	private final boolean prefixSpanAnnotation;
+	private final String prefixSpanSeparator;
+	private final Set<String> separateSpanAnnos;
+	private final boolean makePointingRelations;
+	private final List<String> pointingTargetAnno;
+	private final List<String> pointingIDAnno;
+	private final List<String> pointingEdgeAnno;
+	private final List<String> pointingType;
+	private final List<String> pointingNS;
+	private final List<Boolean> invertPointingRelations;
+	private final boolean prUseHash;
+	private final boolean suppressPRID;
+	private final boolean suppressPRTarget;
+	private final boolean suppressPRLabel;
+
+	TreetaggerImporterSettings(TreetaggerImporterProperties props) {
+		metaTag = props.getProperty(TreetaggerImporterProperties.PROP_META_TAG).getValue().toString();
+		fileEncoding = props.getProperty(TreetaggerImporterProperties.PROP_FILE_ENCODING).getValue().toString();
+		columnNames = Collections.unmodifiableList(props.getColumnNames());
+		parallelism = props.getParallelism();
+		columnarDocuments = props.getColumnarDocuments();
+		writeDocumentIndex = props.getWriteDocumentIndex();
+		separatorAfterToken = props.getSeparatorAfterToken();
+		textName = props.getTextName();
+		replacer = StringReplacer.compile(props.getReplacementMapping());
+		replaceInAnnos = props.getReplaceInAnnos();
+		annotateUnannotatedSpans = props.getAnnotateUnannotatedSpans();
+		annotateAllSpansWithName = props.getAnnotateAllSpansWithName();
+		spanAnnotationNamespace = props.getSpanAnnotationNamespace();
+		prefixSpanAnnotation = props.getPrefixSpanAnnotation();
+		prefixSpanSeparator = props.getPrefixSpanSeparator();
+		final String[] separateSpanAnnoNames = props.getSeparateSpanAnnos();
+		separateSpanAnnos = separateSpanAnnoNames == null ? null
+				: Collections.unmodifiableSet(new HashSet<>(Arrays.asList(separateSpanAnnoNames)));
+		makePointingRelations = props.getMakePointingRelations();
+		pointingTargetAnno = Collections.unmodifiableList(props.getPointingTargetAnno());
+		pointingIDAnno = Collections.unmodifiableList(props.getPointingIDAnno());
+		pointingEdgeAnno = Collections.unmodifiableList(props.getPointingEdgeAnno());
+		pointingType = Collections.unmodifiableList(props.getPointingType());
+		pointingNS = Collections.unmodifiableList(props.getPointingNS());
+		invertPointingRelations = Collections.unmodifiableList(props.getInvertPointingRelations());
+		prUseHash = props.getPRUseHash();
+		suppressPRID = props.getSuppressPRID();
+		suppressPRTarget = props.getSuppressPRTarget();
+		suppressPRLabel = props.getSuppressPRLabel();
+	}
+
+	public String getMetaTag() {
+		return metaTag;
+	}
+
+	public String getFileEncoding() {
+		return fileEncoding;
+	}
+
+	public List<String> getColumnNames() {
+		return columnNames;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public boolean getColumnarDocuments() {
+		return columnarDocuments;
+	}
+
+	public boolean getWriteDocumentIndex() {
+		return writeDocumentIndex;
+	}
+
+	public String getSeparatorAfterToken() {
+		return separatorAfterToken;
+	}
+
+	public String getTextName() {
+		return textName;
+	}
+
+	/**
+	 * Returns the compiled token replacements or <code>null</code>, if there
+	 * are none.
+	 */
+	public StringReplacer getReplacer() {
+		return replacer;
+	}
+
+	public boolean getReplaceInAnnos() {
+		return replaceInAnnos;
+	}
+
+	public boolean getAnnotateUnannotatedSpans() {
+		return annotateUnannotatedSpans;
+	}
+
+	public boolean getAnnotateAllSpansWithName() {
+		return annotateAllSpansWithName;
+	}
+
+	public String getSpanAnnotationNamespace() {
+		return spanAnnotationNamespace;
+	}
+
+	public boolean getPrefixSpanAnnotation() {
+		return prefixSpanAnnotation;
+	}
+
+	public String getPrefixSpanSeparator() {
+		return prefixSpanSeparator;
+	}
+
+	/**
+	 * Returns the names of span annotations, for which separate spans are
+	 * created, or <code>null</code> if none are configured.
+	 */
+	public Set<String> getSeparateSpanAnnos() {
+		return separateSpanAnnos;
+	}
+
+	public boolean getMakePointingRelations() {
+		return makePointingRelations;
+	}
+
+	public List<String> getPointingTargetAnno() {
+		return pointingTargetAnno;
+	}
+
+	public List<String> getPointingIDAnno() {
+		return pointingIDAnno;
+	}
+
+	public List<String> getPointingEdgeAnno() {
+		return pointingEdgeAnno;
+	}
+
+	public List<String> getPointingType() {
+		return pointingType;
+	}
+
+	public List<String> getPointingNS() {
+		return pointingNS;
+	}
+
+	public List<Boolean> getInvertPointingRelations() {
+		return invertPointingRelations;
+	}
+
+	public boolean getPRUseHash() {
+		return prUseHash;
+	}
+
+	public boolean getSuppressPRID() {
+		return suppressPRID;
+	}
+
+	public boolean getSuppressPRTarget() {
+		return suppressPRTarget;
+	}
+
+	public boolean getSuppressPRLabel() {
+		return suppressPRLabel;
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.corpus_tools.salt.core.SAnnotation;
+import org.corpus_tools.salt.semantics.SLemmaAnnotation;
+import org.corpus_tools.salt.semantics.SPOSAnnotation;
+import org.corpus_tools.salt.util.SaltUtil;
+
+/**
+ * Decides how a Salt token annotation is exported, by its class and else by
+ * its name. Decisions are made once per class and name and shared by all
+ * mappers of an export. Since annotation names are an open class, names are
+ * no longer cached as soon as the table holds its maximal number of names.
+ */
+public class AnnotationDecisionTable {
+	/** the maximal number of names of a table created by default */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/** How an annotation is exported. */
+	public enum Decision {
+		/** a {@link SPOSAnnotation} */
+		POS,
+		/** a {@link SLemmaAnnotation} */
+		LEMMA,
+		/** an annotation named like {@link SaltUtil#SEMANTICS_POS} */
+		POS_BY_NAME,
+		/** an annotation named like {@link SaltUtil#SEMANTICS_LEMMA} */
+		LEMMA_BY_NAME,
+		/** any other annotation */
+		ANY
+	}
+
+	/** the decision for each class, {@link Decision#ANY} if it depends on the name */
+	private final ConcurrentHashMap<Class<?>, Decision> classDecisions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Decision> nameDecisions;
+	private final int maxSize;
+
+	public AnnotationDecisionTable() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public AnnotationDecisionTable(int maxSize) {
+		this.maxSize = maxSize;
+		nameDecisions = new ConcurrentHashMap<>(Math.min(maxSize, 64));
+	}
+
+	public Decision decide(SAnnotation sAnno) {
+		Decision decision = classDecisions.get(sAnno.getClass());
+		if (decision == null) {
+			decision = decideByClass(sAnno.getClass());
+			classDecisions.putIfAbsent(sAnno.getClass(), decision);
+		}
+		if (decision != Decision.ANY) {
+			return decision;
+		}
+		final String name = sAnno.getName();
+		if (name == null) {
+			return Decision.ANY;
+		}
+		decision = nameDecisions.get(name);
+		if (decision == null) {
+			decision = decideByName(name);
+			if (nameDecisions.size() < maxSize) {
+				nameDecisions.putIfAbsent(name, decision);
+			}
+		}
+		return decision;
+	}
+
+	private static Decision decideByClass(Class<?> annotationClass) {
+		if (SPOSAnnotation.class.isAssignableFrom(annotationClass)) {
+			return Decision.POS;
+		} else if (SLemmaAnnotation.class.isAssignableFrom(annotationClass)) {
+			return Decision.LEMMA;
+		}
+		return Decision.ANY;
+	}
+
+	private static Decision decideByName(String name) {
+		if (SaltUtil.SEMANTICS_POS.equalsIgnoreCase(name)) {
+			return Decision.POS_BY_NAME;
+		} else if (SaltUtil.SEMANTICS_LEMMA.equalsIgnoreCase(name)) {
+			return Decision.LEMMA_BY_NAME;
+		}
+		return Decision.ANY;
+	}
+
+	/** Returns the number of names decided. */
+	public int size() {
+		return nameDecisions.size();
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.core.SLayer;
+import org.corpus_tools.salt.core.SNode;
+import org.corpus_tools.salt.core.SRelation;
+
+/**
+ * Collects the nodes and relations of a document graph and inserts them in
+ * one pass per kind, first all nodes, then all relations and at last the
+ * layer memberships of the nodes. Salt does not offer a bulk insertion, but
+ * this way each element is indexed once, relations are only inserted when
+ * their source and target are already contained, and adding a node to a layer
+ * does not add it to the graph a second time. The order of nodes and of
+ * relations is kept, so that Salt generates the same ids. Names are set after
+ * the insertion, since Salt derives the id from the name of a named node.
+ */
+class GraphBuilder {
+	private final SDocumentGraph graph;
+	private final List<SNode> nodes;
+	private final List<String> names;
+	private final List<SRelation<?, ?>> relations;
+	private final List<SNode> layerNodes = new ArrayList<>();
+	private final List<SLayer> layers = new ArrayList<>();
+
+	GraphBuilder(SDocumentGraph graph, int expectedNumOfNodes, int expectedNumOfRelations) {
+		this.graph = graph;
+		nodes = new ArrayList<>(expectedNumOfNodes);
+		names = new ArrayList<>(expectedNumOfNodes);
+		relations = new ArrayList<>(expectedNumOfRelations);
+	}
+
+	void addNode(SNode node) {
+		addNode(node, null);
+	}
+
+	/** Adds a node, which is named after it was inserted into the graph. */
+	void addNode(SNode node, String name) {
+		nodes.add(node);
+		names.add(name);
+	}
+
+	void addRelation(SRelation<?, ?> relation) {
+		relations.add(relation);
+	}
+
+	/** Adds the node to the layer, after it was inserted into the graph. */
+	void addLayer(SNode node, SLayer layer) {
+		layerNodes.add(node);
+		layers.add(layer);
+	}
+
+	/**
+	 * Inserts all collected elements into the graph, after which the builder
+	 * is empty.
+	 */
+	void build() {
+		for (int i = 0; i < nodes.size(); i++) {
+			graph.addNode(nodes.get(i));
+			if (names.get(i) != null) {
+				nodes.get(i).setName(names.get(i));
+			}
+		}
+		for (SRelation<?, ?> relation : relations) {
+			graph.addRelation(relation);
+		}
+		for (int i = 0; i < layerNodes.size(); i++) {
+			layerNodes.get(i).addLayer(layers.get(i));
+		}
+		nodes.clear();
+		names.clear();
+		relations.clear();
+		layerNodes.clear();
+		layers.clear();
+	}
+}
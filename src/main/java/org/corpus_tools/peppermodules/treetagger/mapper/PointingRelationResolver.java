@@ -0,0 +1,231 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.corpus_tools.pepper.modules.PepperMapper;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleDataException;
+import org.corpus_tools.peppermodules.treetagger.TreetaggerImporterSettings;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.SPointingRelation;
+import org.corpus_tools.salt.common.SSpan;
+import org.corpus_tools.salt.core.SAnnotation;
+import org.corpus_tools.salt.core.SLayer;
+
+/**
+ * Creates pointing relations between spans from span annotations. The
+ * properties may define several sets of target, id and edge annotation names
+ * separated by commas. They are compiled into a lookup from annotation name to
+ * the roles the annotation has in these sets, so that each span annotation is
+ * handled with a single lookup. Relations are created by {@link #resolve()}
+ * after all spans of the document are known.
+ */
+class PointingRelationResolver {
+	private static final int TARGET = 0;
+	private static final int ID = 1;
+	private static final int EDGE = 2;
+
+	/**
+	 * The role of an annotation name in a set of pointing relation
+	 * annotations.
+	 */
+	private static class Role {
+		final int set;
+		final int kind;
+
+		Role(int set, int kind) {
+			this.set = set;
+			this.kind = kind;
+		}
+	}
+
+	private final PepperMapper mapper;
+	private final SDocumentGraph graph;
+	private final List<String> targetAnnoNames;
+	private final List<String> idAnnoNames;
+	private final List<String> edgeAnnoNames;
+	private final List<String> types;
+	private final List<Boolean> invertRelations;
+	private final List<String> layerNames;
+	private final List<SLayer> layers = new ArrayList<>();
+	private final boolean useHash;
+	private final Map<String, List<Role>> roles = new HashMap<>();
+	private final Set<String> suppressedAnnoNames = new HashSet<>();
+
+	/** per set: maps source spans to their target id and edge annotation */
+	private final List<Map<SSpan, String[]>> targetsBySet = new ArrayList<>();
+	/** per set: maps ids to spans */
+	private final List<Map<String, SSpan>> spansBySet = new ArrayList<>();
+
+	PointingRelationResolver(TreetaggerImporterSettings settings, SDocumentGraph graph, PepperMapper mapper) {
+		this.mapper = mapper;
+		this.graph = graph;
+		targetAnnoNames = settings.getPointingTargetAnno();
+		idAnnoNames = settings.getPointingIDAnno();
+		edgeAnnoNames = settings.getPointingEdgeAnno();
+		types = settings.getPointingType();
+		invertRelations = settings.getInvertPointingRelations();
+		layerNames = settings.getPointingNS();
+		useHash = settings.getPRUseHash();
+		for (String layerName : layerNames) {
+			final SLayer layer = SaltFactory.createSLayer();
+			layer.setName(layerName);
+			layer.setGraph(graph);
+			layers.add(layer);
+		}
+		for (int set = 0; set < targetAnnoNames.size(); set++) {
+			final String targetAnnoName = targetAnnoNames.get(set);
+			final String idAnnoName = idAnnoNames.get(set);
+			final String edgeAnnoName = edgeAnnoNames.get(set);
+			addRole(targetAnnoName, new Role(set, TARGET));
+			if (!idAnnoName.equals(targetAnnoName)) {
+				addRole(idAnnoName, new Role(set, ID));
+			}
+			if (!edgeAnnoName.equals(targetAnnoName) && !edgeAnnoName.equals(idAnnoName)) {
+				addRole(edgeAnnoName, new Role(set, EDGE));
+			}
+			targetsBySet.add(new LinkedHashMap<SSpan, String[]>());
+			spansBySet.add(new HashMap<String, SSpan>());
+		}
+		if (settings.getSuppressPRTarget()) {
+			suppressedAnnoNames.addAll(targetAnnoNames);
+		}
+		if (settings.getSuppressPRID()) {
+			suppressedAnnoNames.addAll(idAnnoNames);
+		}
+		if (settings.getSuppressPRLabel()) {
+			suppressedAnnoNames.addAll(edgeAnnoNames);
+		}
+	}
+
+	private void addRole(String annoName, Role role) {
+		List<Role> rolesOfName = roles.get(annoName);
+		if (rolesOfName == null) {
+			rolesOfName = new ArrayList<>(1);
+			roles.put(annoName, rolesOfName);
+		}
+		rolesOfName.add(role);
+	}
+
+	/**
+	 * Returns whether an annotation with the given name must not be added to
+	 * the span, because it only encodes a pointing relation.
+	 */
+	boolean isSuppressed(String annoName) {
+		return suppressedAnnoNames.contains(annoName);
+	}
+
+	/**
+	 * Records the annotation of the span, if it is a target, id or edge
+	 * annotation of any set.
+	 */
+	void addAnnotation(SSpan span, SAnnotation anno) {
+		final List<Role> rolesOfName = roles.get(anno.getName());
+		if (rolesOfName == null) {
+			return;
+		}
+		for (Role role : rolesOfName) {
+			if (role.kind == ID) {
+				spansBySet.get(role.set).put(anno.getValue_STEXT(), span);
+				continue;
+			}
+			final Map<SSpan, String[]> targets = targetsBySet.get(role.set);
+			String[] target = targets.get(span);
+			if (target == null) {
+				target = new String[2];
+				targets.put(span, target);
+			}
+			if (role.kind == TARGET) {
+				String targetId = anno.getValue_STEXT();
+				if (useHash && targetId.startsWith("#")) { // Trim # if using href syntax
+					targetId = targetId.substring(1);
+				}
+				target[0] = targetId;
+			} else {
+				target[1] = anno.getValue_STEXT();
+			}
+		}
+	}
+
+	/**
+	 * Creates the pointing relations of all recorded spans.
+	 *
+	 * @throws PepperModuleDataException
+	 *             listing all target ids, which do not refer to any span
+	 */
+	void resolve() {
+		final StringBuilder errors = new StringBuilder();
+		for (int set = 0; set < targetsBySet.size(); set++) {
+			final Map<String, SSpan> spans = spansBySet.get(set);
+			for (Entry<SSpan, String[]> entry : targetsBySet.get(set).entrySet()) {
+				final String targetId = entry.getValue()[0];
+				if (targetId == null) {
+					continue;
+				}
+				final SSpan target = spans.get(targetId);
+				if (target == null) {
+					errors.append("Input error: pointing relation target ID ").append(targetAnnoNames.get(set))
+							.append("=").append(targetId).append(" refers to a non-existent span annotation ")
+							.append(idAnnoNames.get(set)).append("=").append(targetId).append("\n");
+				} else {
+					createRelation(set, entry.getKey(), target, entry.getValue()[1]);
+				}
+			}
+		}
+		if (errors.length() > 0) {
+			throw new PepperModuleDataException(mapper, errors.toString());
+		}
+	}
+
+	private void createRelation(int set, SSpan source, SSpan target, String edgeAnno) {
+		String layerName = "";
+		SLayer layer = null;
+		if (layerNames.size() > set) {
+			layerName = layerNames.get(set);
+			layer = layers.get(set);
+		}
+		final SPointingRelation rel = SaltFactory.createSPointingRelation();
+		if (edgeAnno != null && edgeAnno.length() > 0) {
+			final SAnnotation anno = SaltFactory.createSAnnotation();
+			anno.setName(edgeAnnoNames.get(set));
+			anno.setValue(edgeAnno);
+			anno.setNamespace(layerName);
+			rel.addAnnotation(anno);
+		}
+		if (!invertRelations.get(set)) {
+			rel.setSource(source);
+			rel.setTarget(target);
+		} else {
+			rel.setSource(target);
+			rel.setTarget(source);
+		}
+		rel.setType(types.get(set));
+		// adding the layer first would add the relation to the graph twice
+		graph.addRelation(rel);
+		rel.addLayer(layer);
+	}
+}
@@ -17,29 +17,38 @@
  */
 package org.corpus_tools.peppermodules.treetagger.mapper;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
 import org.corpus_tools.pepper.exceptions.PepperConvertException;
 import org.corpus_tools.pepper.impl.PepperMapperImpl;
 import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.peppermodules.treetagger.DocumentWriterPool;
 import org.corpus_tools.peppermodules.treetagger.TreetaggerExporterProperties;
+import org.corpus_tools.peppermodules.treetagger.TreetaggerExporterSettings;
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
 import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
 import org.corpus_tools.peppermodules.treetagger.model.serialization.TabWriter;
+import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.common.SDocumentGraph;
 import org.corpus_tools.salt.common.SOrderRelation;
 import org.corpus_tools.salt.common.SSpan;
+import org.corpus_tools.salt.common.SSpanningRelation;
 import org.corpus_tools.salt.common.STextualRelation;
 import org.corpus_tools.salt.common.SToken;
 import org.corpus_tools.salt.core.SAnnotation;
@@ -73,6 +82,61 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 		return (TreetaggerExporterProperties) getProperties();
 	}
 
+	private TreetaggerExporterSettings settings = null;
+
+	/**
+	 * Sets the settings shared by all mappers of an export.
+	 */
+	public void setSettings(TreetaggerExporterSettings settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Returns the settings set by the exporter or a snapshot of the
+	 * properties, if none were set.
+	 */
+	public TreetaggerExporterSettings getSettings() {
+		if (settings == null) {
+			settings = getProps().createSettings();
+		}
+		return settings;
+	}
+
+	private DocumentWriterPool writerPool = null;
+
+	/**
+	 * Sets the pool writing the documents, which is shared by all mappers of
+	 * an export. Without a pool, the mapper writes its document itself.
+	 */
+	public void setWriterPool(DocumentWriterPool writerPool) {
+		this.writerPool = writerPool;
+	}
+
+	public DocumentWriterPool getWriterPool() {
+		return writerPool;
+	}
+
+	private AnnotationDecisionTable annotationDecisionTable = null;
+
+	/**
+	 * Sets the table deciding how token annotations are exported, which is
+	 * shared by all mappers of an export.
+	 */
+	public void setAnnotationDecisionTable(AnnotationDecisionTable annotationDecisionTable) {
+		this.annotationDecisionTable = annotationDecisionTable;
+	}
+
+	/**
+	 * Returns the table set by the exporter or a table of its own, if none was
+	 * set.
+	 */
+	public AnnotationDecisionTable getAnnotationDecisionTable() {
+		if (annotationDecisionTable == null) {
+			annotationDecisionTable = new AnnotationDecisionTable();
+		}
+		return annotationDecisionTable;
+	}
+
 	// ---------------------------------------------------------------------------------------------
 	private int numOfSTokensWithMultiplePOSAnnos = 0;
 	private int numOfSTokensWithMultipleLemmaAnnos = 0;
@@ -83,6 +147,11 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 		return ttDocument;
 	}
 
+	/**
+	 * Sets the treetagger document to be filled by {@link #mapSDocument()}.
+	 * If no document is set, the document graph is written directly without
+	 * creating a treetagger document.
+	 */
 	public void setTTDocument(Document ttDocument) {
 		this.ttDocument = ttDocument;
 	}
@@ -95,12 +164,19 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 
 		if (getDocument().getDocumentGraph() != null) {
 
-			if (getTTDocument() == null) {
-				setTTDocument(TreetaggerFactory.eINSTANCE.createDocument());
+			try {
+				if (getTTDocument() != null) {
+					getTTDocument().setName(getDocument().getName());
+					this.addDocumentAnnotations(getDocument().getMetaAnnotations(), getTTDocument());
+					this.addTokens(getDocument().getDocumentGraph(), getTTDocument());
+					this.saveToFile(getResourceURI(), getTTDocument());
+				} else {
+					this.writeToFile(getResourceURI());
+				}
+			} catch (IOException e) {
+				throw new PepperConvertException("Cannot write document with id: '" + getDocument().getId() + "' to: '"
+					+ getResourceURI() + "'.", e);
 			}
-			getTTDocument().setName(getDocument().getName());
-			this.addDocumentAnnotations(getDocument().getMetaAnnotations(), getTTDocument());
-			this.addTokens(getDocument().getDocumentGraph(), getTTDocument());
 			if (this.numOfSTokensWithMultiplePOSAnnos > 0) {
 				logger.warn("There were " + this.numOfSTokensWithMultiplePOSAnnos
 					+ " tokens with more than one POS annotation in the document. The first one found for each token was used for it´s POS annotation; the remainder was used for ordinary annotations.");
@@ -109,16 +185,34 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 				logger.warn("There were " + this.numOfSTokensWithMultipleLemmaAnnos
 					+ " tokens with more than one lemma annotation in the document. The first one found for each token was used for it´s lemma annotation; the remainder was used for ordinary annotations.");
 			}
-			try {
-				this.saveToFile(getResourceURI(), getTTDocument());
-			} catch (IOException e) {
-				throw new PepperConvertException("Cannot write document with id: '" + getDocument().getId() + "' to: '"
-					+ getResourceURI() + "'.", e);
-			}
 		}
 		return (DOCUMENT_STATUS.COMPLETED);
 	}
 
+	/**
+	 * Writes the document graph without creating a treetagger document. With
+	 * a writer pool, the document is converted here and written by the
+	 * threads of the pool, this method returns when the document is written.
+	 */
+	private void writeToFile(final URI uri) throws IOException {
+		if (uri == null) {
+			throw new PepperModuleException(this,
+				"Cannot save o given uri, because its null for document '" + getDocument() + "'.");
+		}
+		final SaltTabWriter writer = new SaltTabWriter(this);
+		final SDocument sDocument = getDocument();
+		if (getWriterPool() == null) {
+			writer.save(sDocument.getDocumentGraph(), sDocument.getMetaAnnotations(), uri,
+				getSettings().getWriterOptions());
+		} else {
+			try (OutputStream out = getWriterPool().open(uri.toFileString(),
+					() -> new FileOutputStream(uri.toFileString()))) {
+				writer.save(sDocument.getDocumentGraph(), sDocument.getMetaAnnotations(), out,
+					getSettings().getWriterOptions());
+			}
+		}
+	}
+
 	private void saveToFile(URI uri, Document tDocument) throws IOException {
 		if (uri == null) {
 			throw new PepperModuleException(this,
@@ -126,7 +220,7 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 		}
 
 		final TabWriter writer = new TabWriter();
-		writer.save(tDocument, uri, getProperties().getProperties());
+		writer.save(tDocument, uri, getSettings().getWriterOptions());
 
 		// // create resource set and resource
 		// ResourceSet resourceSet = new ResourceSetImpl();
@@ -164,58 +258,32 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 	 * auxiliary method
 	 */
 	protected void addTokens(SDocumentGraph sDocumentGraph, Document tDocument) {
-		Hashtable<SToken, ArrayList<SSpan>> token2SpansTable = new Hashtable<SToken, ArrayList<SSpan>>();
-		for (int i = 0; i < sDocumentGraph.getSpanningRelations().size(); i++) {
-			SToken sToken = sDocumentGraph.getSpanningRelations().get(i).getTarget();
-			SSpan sSpan = sDocumentGraph.getSpanningRelations().get(i).getSource();
-			if (!token2SpansTable.containsKey(sToken)) {
-				token2SpansTable.put(sToken, new ArrayList<SSpan>());
-			}
-			token2SpansTable.get(sToken).add(sSpan);
-		}
-
-		Hashtable<SSpan, Span> sSpan2SpanTable = new Hashtable<SSpan, Span>();
+		Map<SToken, List<SSpan>> token2SpansTable = getToken2SpansTable(sDocumentGraph);
+		Map<SSpan, Span> sSpan2SpanTable = new IdentityHashMap<SSpan, Span>();
 		long tokenIndex = 0;
-		String segmentationName = getProps().getSegmentationName();	
-		List<SToken> relevantTokens;
-		if (segmentationName == null) {	
-			relevantTokens = sDocumentGraph.getSortedTokenByText();
-		} else {
-			List<SOrderRelation> orderRels = sDocumentGraph.getOrderRelations().stream().filter((SOrderRelation r) -> segmentationName.equals(r.getType())).collect(Collectors.toList());
-			Set<SToken> tokens = new HashSet<>();
-			for (SOrderRelation rel : orderRels) {
-				SNode from = rel.getSource();
-				SNode to = rel.getTarget();
-				SNode[] nodes = {from, to};
-				for (SNode node : nodes) {
-					if (node instanceof SSpan) {
-						sDocumentGraph.getOverlappedTokens(node).stream().forEach(tokens::add);
-					} 
-					else if (from instanceof SToken) {
-						tokens.add((SToken) node);
-					}
-				}
-			}
-			relevantTokens = sDocumentGraph.getSortedTokenByText(new ArrayList<SToken>(tokens));
-		}
+		List<SToken> relevantTokens = getRelevantTokens(sDocumentGraph);
 		for (SToken sToken : relevantTokens) {
 			for (SRelation rel : sToken.getOutRelations()) {
 				if (rel instanceof STextualRelation) {
 					STextualRelation sTexRel = (STextualRelation) rel;
 					Token token = TreetaggerFactory.eINSTANCE.createToken();
 					token.setLine(tokenIndex++);
+					token.setId(tDocument.getTokens().size());
 					token.setText(sTexRel.getTarget().getText().substring(sTexRel.getStart(), sTexRel.getEnd()));
 					
 					addTokenAnnotations(sToken, token);
 					
 					tDocument.getTokens().add(token);
-					if (token2SpansTable.containsKey(sToken)) {
-						for (int j = 0; j < token2SpansTable.get(sToken).size(); j++) {
-							SSpan sSpan = token2SpansTable.get(sToken).get(j);
-							if (!sSpan2SpanTable.containsKey(sSpan)) {
-								sSpan2SpanTable.put(sSpan, this.createSpan(sSpan));
-							}
+					List<SSpan> sSpans = token2SpansTable.get(sToken);
+					if (sSpans != null) {
+						for (int j = 0; j < sSpans.size(); j++) {
+							SSpan sSpan = sSpans.get(j);
 							Span tSpan = sSpan2SpanTable.get(sSpan);
+							if (tSpan == null) {
+								tSpan = this.createSpan(sSpan);
+								tSpan.setId(sSpan2SpanTable.size());
+								sSpan2SpanTable.put(sSpan, tSpan);
+							}
 							token.getSpans().add(tSpan);
 							tSpan.getTokens().add(token);
 						}
@@ -225,98 +293,272 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 		}
 	}
 
-	/*
-	 * auxiliary method
-	 */
-	protected void addTokenAnnotations(SToken sToken, Token tToken) {
-		boolean donePOSAnno = false;
-		ArrayList<SAnnotation> possiblePOSAnnos = new ArrayList<SAnnotation>();
-
-		boolean doneLemmaAnno = false;
-		ArrayList<SAnnotation> possibleLemmaAnnos = new ArrayList<SAnnotation>();
+	/** the graph {@link #token2SpansTable} was created for */
+	private SDocumentGraph indexedGraph = null;
+	private Map<SToken, List<SSpan>> token2SpansTable = null;
 
-		Iterator<SAnnotation> it = sToken.getAnnotations().iterator();
-		while (it.hasNext()) {
-			SAnnotation sAnno = it.next();
-			Annotation tAnno = null;
+	/**
+	 * Returns the spans of each token in the order of the spanning relations.
+	 * The table is keyed by identity and created once per graph.
+	 */
+	protected Map<SToken, List<SSpan>> getToken2SpansTable(SDocumentGraph sDocumentGraph) {
+		if (indexedGraph != sDocumentGraph) {
+			List<SSpanningRelation> spanningRels = sDocumentGraph.getSpanningRelations();
+			Map<SToken, List<SSpan>> table = new IdentityHashMap<SToken, List<SSpan>>(
+					Math.min(spanningRels.size(), sDocumentGraph.getTokens().size()));
+			for (SSpanningRelation spanningRel : spanningRels) {
+				SToken sToken = spanningRel.getTarget();
+				List<SSpan> sSpans = table.get(sToken);
+				if (sSpans == null) {
+					// most tokens belong to a few spans only
+					sSpans = new ArrayList<SSpan>(4);
+					table.put(sToken, sSpans);
+				}
+				sSpans.add(spanningRel.getSource());
+			}
+			token2SpansTable = table;
+			indexedGraph = sDocumentGraph;
+		}
+		return token2SpansTable;
+	}
 
-			if (sAnno instanceof SPOSAnnotation) {
-				if (!donePOSAnno) {
-					tAnno = TreetaggerFactory.eINSTANCE.createPOSAnnotation();
-					donePOSAnno = true;
-				} else {
-					this.numOfSTokensWithMultiplePOSAnnos++;
-					tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
+	/**
+	 * Returns the tokens to be exported, which are all tokens in the order of
+	 * the text or the tokens of the segmentation set in the properties.
+	 * 
+	 * A segmentation is a chain of tokens or spans connected by order
+	 * relations of its name. It is walked once from its root, and the tokens
+	 * of each segment are taken in the order of the text. Tokens of several
+	 * segments are only taken for the first one.
+	 */
+	protected List<SToken> getRelevantTokens(SDocumentGraph sDocumentGraph) {
+		String segmentationName = getSettings().getSegmentationName();
+		if (segmentationName == null) {
+			return sDocumentGraph.getSortedTokenByText();
+		}
+		Map<SNode, List<SNode>> successors = new IdentityHashMap<SNode, List<SNode>>();
+		Set<SNode> successorSet = Collections.newSetFromMap(new IdentityHashMap<SNode, Boolean>());
+		List<SNode> sources = new ArrayList<SNode>();
+		for (SOrderRelation rel : sDocumentGraph.getOrderRelations()) {
+			if (segmentationName.equals(rel.getType())) {
+				List<SNode> next = successors.get(rel.getSource());
+				if (next == null) {
+					next = new ArrayList<SNode>(1);
+					successors.put(rel.getSource(), next);
+					sources.add(rel.getSource());
 				}
-			} else if (sAnno instanceof SLemmaAnnotation) {
-				if (!doneLemmaAnno) {
-					tAnno = TreetaggerFactory.eINSTANCE.createLemmaAnnotation();
-					doneLemmaAnno = true;
-				} else {
-					this.numOfSTokensWithMultipleLemmaAnnos++;
-					tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
+				next.add(rel.getTarget());
+				successorSet.add(rel.getTarget());
+			}
+		}
+
+		List<SToken> tokens = new ArrayList<SToken>();
+		Set<SNode> visited = Collections.newSetFromMap(new IdentityHashMap<SNode, Boolean>());
+		Set<SToken> added = Collections.newSetFromMap(new IdentityHashMap<SToken, Boolean>());
+		Map<SSpan, List<SToken>> span2TokensTable = null;
+		ArrayDeque<SNode> stack = new ArrayDeque<SNode>();
+		// start at the roots, the remaining sources can only be in cycles
+		for (int pass = 0; pass < 2; pass++) {
+			for (SNode source : sources) {
+				if (visited.contains(source) || (pass == 0 && successorSet.contains(source))) {
+					continue;
 				}
-			} else {
-				// try to set the right type of Annotation by SALT_SEMANTICS
-				if (SaltUtil.SEMANTICS_POS.equalsIgnoreCase(sAnno.getName())) {
-					if (!donePOSAnno) {
-						possiblePOSAnnos.add(sAnno);
-					} else {
-						tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
+				stack.push(source);
+				while (!stack.isEmpty()) {
+					SNode node = stack.pop();
+					if (!visited.add(node)) {
+						continue;
+					}
+					if (node instanceof SToken) {
+						if (added.add((SToken) node)) {
+							tokens.add((SToken) node);
+						}
+					} else if (node instanceof SSpan) {
+						if (span2TokensTable == null) {
+							span2TokensTable = createSpan2TokensTable(sDocumentGraph);
+						}
+						List<SToken> spanTokens = span2TokensTable.get(node);
+						if (spanTokens != null) {
+							for (SToken sToken : spanTokens) {
+								if (added.add(sToken)) {
+									tokens.add(sToken);
+								}
+							}
+						}
 					}
-				} else if (SaltUtil.SEMANTICS_LEMMA.equalsIgnoreCase(sAnno.getName())) {
-					if (!doneLemmaAnno) {
-						possibleLemmaAnnos.add(sAnno);
-					} else {
-						tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
+					List<SNode> next = successors.get(node);
+					if (next != null) {
+						for (int i = next.size() - 1; i >= 0; i--) {
+							stack.push(next.get(i));
+						}
 					}
-				} else {
-					tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
 				}
 			}
+		}
+		return tokens;
+	}
 
-			if (tAnno != null) {
-				// setting the name will only affect instances of AnyAnnotation:
-				// POSAnnotations get the name "pos", LemmaAnnotations get the
-				// name "lemma"
-				tAnno.setName(sAnno.getName());
-				tAnno.setValue(sAnno.getValue_STEXT());
-				tToken.getAnnotations().add(tAnno);
+	/**
+	 * Returns the tokens of each span in the order of the text.
+	 */
+	private Map<SSpan, List<SToken>> createSpan2TokensTable(SDocumentGraph sDocumentGraph) {
+		List<SSpanningRelation> spanningRels = sDocumentGraph.getSpanningRelations();
+		Map<SSpan, List<SToken>> span2TokensTable = new IdentityHashMap<SSpan, List<SToken>>(
+				Math.min(spanningRels.size(), sDocumentGraph.getSpans().size()));
+		for (SSpanningRelation spanningRel : spanningRels) {
+			List<SToken> sTokens = span2TokensTable.get(spanningRel.getSource());
+			if (sTokens == null) {
+				sTokens = new ArrayList<SToken>(4);
+				span2TokensTable.put(spanningRel.getSource(), sTokens);
+			}
+			sTokens.add(spanningRel.getTarget());
+		}
+		for (List<SToken> sTokens : span2TokensTable.values()) {
+			if (sTokens.size() > 1) {
+				Collections.sort(sTokens, BY_TEXT_POSITION);
 			}
 		}
+		return span2TokensTable;
+	}
 
-		for (int i = 0; i < possiblePOSAnnos.size(); i++) {
-			SAnnotation sAnno = possiblePOSAnnos.get(i);
-			Annotation tAnno = null;
-			if (!donePOSAnno) {
-				tAnno = TreetaggerFactory.eINSTANCE.createPOSAnnotation();
-				donePOSAnno = true;
-			} else {
-				tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
+	/** orders tokens by the start of their first textual relation */
+	private static final Comparator<SToken> BY_TEXT_POSITION = new Comparator<SToken>() {
+		@Override
+		public int compare(SToken sToken1, SToken sToken2) {
+			return Integer.compare(getTextStart(sToken1), getTextStart(sToken2));
+		}
+
+		private int getTextStart(SToken sToken) {
+			for (SRelation<?, ?> rel : sToken.getOutRelations()) {
+				if (rel instanceof STextualRelation) {
+					return ((STextualRelation) rel).getStart();
+				}
 			}
-			// setting the name will only affect instances of AnyAnnotation:
-			// POSAnnotations get the name "pos", LemmaAnnotations get the name
-			// "lemma"
-			tAnno.setName(sAnno.getName());
-			tAnno.setValue(sAnno.getValue_STEXT());
-			tToken.getAnnotations().add(tAnno);
+			return Integer.MAX_VALUE;
 		}
+	};
 
-		for (int i = 0; i < possibleLemmaAnnos.size(); i++) {
-			SAnnotation sAnno = possibleLemmaAnnos.get(i);
+	/*
+	 * auxiliary method
+	 */
+	protected void addTokenAnnotations(SToken sToken, final Token tToken) {
+		classifyTokenAnnotations(sToken, true, (AnnotationKind kind, SAnnotation sAnno) -> {
 			Annotation tAnno = null;
-			if (!doneLemmaAnno) {
+			if (kind == AnnotationKind.POS) {
+				tAnno = TreetaggerFactory.eINSTANCE.createPOSAnnotation();
+			} else if (kind == AnnotationKind.LEMMA) {
 				tAnno = TreetaggerFactory.eINSTANCE.createLemmaAnnotation();
-				doneLemmaAnno = true;
 			} else {
 				tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
 			}
 			// setting the name will only affect instances of AnyAnnotation:
-			// POSAnnotations get the name "pos", LemmaAnnotations get the name
-			// "lemma"
+			// POSAnnotations get the name "pos", LemmaAnnotations get the
+			// name "lemma"
 			tAnno.setName(sAnno.getName());
 			tAnno.setValue(sAnno.getValue_STEXT());
 			tToken.getAnnotations().add(tAnno);
+		});
+	}
+
+	/**
+	 * The kind of annotation a Salt token annotation is exported as.
+	 */
+	protected enum AnnotationKind {
+		POS, LEMMA, ANY
+	}
+
+	/**
+	 * Passes the annotations of a token with the kind they are exported as to
+	 * the consumer. The first {@link SPOSAnnotation} or else the first
+	 * annotation named like {@link SaltUtil#SEMANTICS_POS} becomes the POS
+	 * annotation, the lemma annotation is chosen alike. The annotations are
+	 * passed in the order of the token, except for those found by name before
+	 * a POS or lemma annotation was chosen, which are passed last in their
+	 * order, when it is known whether they are needed.
+	 * 
+	 * @param countMultiples
+	 *            whether tokens with more than one POS or lemma annotation are
+	 *            counted for the warnings of the mapper
+	 */
+	protected void classifyTokenAnnotations(SToken sToken, boolean countMultiples,
+			BiConsumer<AnnotationKind, SAnnotation> consumer) {
+		final AnnotationDecisionTable decisionTable = getAnnotationDecisionTable();
+		boolean donePOSAnno = false;
+		boolean doneLemmaAnno = false;
+		SAnnotation posAnnoByName = null;
+		SAnnotation lemmaAnnoByName = null;
+		// further candidates found by name are rare, so the lists are created on demand
+		List<SAnnotation> morePOSAnnosByName = null;
+		List<SAnnotation> moreLemmaAnnosByName = null;
+
+		for (SAnnotation sAnno : sToken.getAnnotations()) {
+			switch (decisionTable.decide(sAnno)) {
+			case POS:
+				if (!donePOSAnno) {
+					donePOSAnno = true;
+					consumer.accept(AnnotationKind.POS, sAnno);
+				} else {
+					if (countMultiples) {
+						this.numOfSTokensWithMultiplePOSAnnos++;
+					}
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				}
+				break;
+			case LEMMA:
+				if (!doneLemmaAnno) {
+					doneLemmaAnno = true;
+					consumer.accept(AnnotationKind.LEMMA, sAnno);
+				} else {
+					if (countMultiples) {
+						this.numOfSTokensWithMultipleLemmaAnnos++;
+					}
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				}
+				break;
+			case POS_BY_NAME:
+				if (donePOSAnno) {
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				} else if (posAnnoByName == null) {
+					posAnnoByName = sAnno;
+				} else {
+					if (morePOSAnnosByName == null) {
+						morePOSAnnosByName = new ArrayList<>(2);
+					}
+					morePOSAnnosByName.add(sAnno);
+				}
+				break;
+			case LEMMA_BY_NAME:
+				if (doneLemmaAnno) {
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				} else if (lemmaAnnoByName == null) {
+					lemmaAnnoByName = sAnno;
+				} else {
+					if (moreLemmaAnnosByName == null) {
+						moreLemmaAnnosByName = new ArrayList<>(2);
+					}
+					moreLemmaAnnosByName.add(sAnno);
+				}
+				break;
+			default:
+				consumer.accept(AnnotationKind.ANY, sAnno);
+			}
+		}
+
+		if (posAnnoByName != null) {
+			consumer.accept(donePOSAnno ? AnnotationKind.ANY : AnnotationKind.POS, posAnnoByName);
+			if (morePOSAnnosByName != null) {
+				for (SAnnotation sAnno : morePOSAnnosByName) {
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				}
+			}
+		}
+		if (lemmaAnnoByName != null) {
+			consumer.accept(doneLemmaAnno ? AnnotationKind.ANY : AnnotationKind.LEMMA, lemmaAnnoByName);
+			if (moreLemmaAnnosByName != null) {
+				for (SAnnotation sAnno : moreLemmaAnnosByName) {
+					consumer.accept(AnnotationKind.ANY, sAnno);
+				}
+			}
 		}
 	}
 
@@ -325,27 +567,30 @@ public class Salt2TreetaggerMapper extends PepperMapperImpl {
 	 */
 	protected Span createSpan(SSpan sSpan) {
 		Span retVal = TreetaggerFactory.eINSTANCE.createSpan();
-		String alternativeSpanName = null;
 		Iterator<SAnnotation> it = sSpan.getAnnotations().iterator();
 		while (it.hasNext()) {
 			SAnnotation sAnno = it.next();
 			Annotation tAnno = TreetaggerFactory.eINSTANCE.createAnyAnnotation();
-			if (alternativeSpanName == null) {
-				alternativeSpanName = sAnno.getName();
-			}
 			tAnno.setName(sAnno.getName());
 			tAnno.setValue(sAnno.getValue_STEXT());
 			retVal.getAnnotations().add(tAnno);
 		}
-		retVal.setName(sSpan.getName());
-
-		if ((sSpan.getName().startsWith("sSpan")) && (alternativeSpanName != null)) {
+		retVal.setName(getSpanName(sSpan));
+		return retVal;
+	}
 
-			if (this.getProps().isReplaceGenericSpanNamesProperty()) {
-				retVal.setName(alternativeSpanName);
+	/**
+	 * Returns the name of the span or the name of its first annotation, if
+	 * the span has a generic name and generic names are to be replaced.
+	 */
+	protected String getSpanName(SSpan sSpan) {
+		if (sSpan.getName().startsWith("sSpan") && this.getSettings().isReplaceGenericSpanNames()) {
+			Iterator<SAnnotation> it = sSpan.getAnnotations().iterator();
+			if (it.hasNext()) {
+				return it.next().getName();
 			}
 		}
-		return retVal;
+		return sSpan.getName();
 	}
 
 }
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.corpus_tools.peppermodules.treetagger.mapper.Salt2TreetaggerMapper.AnnotationKind;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.SpanEvents;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.TabWriter;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.SSpan;
+import org.corpus_tools.salt.common.STextualRelation;
+import org.corpus_tools.salt.common.SToken;
+import org.corpus_tools.salt.core.SAnnotation;
+import org.corpus_tools.salt.core.SMetaAnnotation;
+import org.corpus_tools.salt.core.SRelation;
+import org.eclipse.emf.common.util.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a Salt document graph in the format of the {@link TabWriter} without
+ * creating a treetagger document first. Tokens, spans and annotations are
+ * selected by the {@link Salt2TreetaggerMapper}, so that the output equals
+ * the one of the mapper and the {@link TabWriter} together.
+ *
+ * Before writing, the tokens are passed once to count the tokens of each span
+ * and to collect the names of the additional columns.
+ */
+class SaltTabWriter {
+	private static final Logger logger = LoggerFactory.getLogger(SaltTabWriter.class);
+	// column seperator
+	private static final String separator = "\t";
+
+	private static final String defaultOutputFileEncoding = "UTF-8";
+	private static final String defaultMetaTag = "meta";
+	private static final String defaultExportAnyAnnotation = "true";
+
+	/** the annotations of the current token as they are written */
+	private static class TokenAnnotations {
+		SAnnotation posAnnotation;
+		SAnnotation lemmaAnnotation;
+		int numOfAnnotations;
+		final Map<String, SAnnotation> anyAnnotations = new HashMap<>();
+
+		void clear() {
+			posAnnotation = null;
+			lemmaAnnotation = null;
+			numOfAnnotations = 0;
+			anyAnnotations.clear();
+		}
+
+		void add(AnnotationKind kind, SAnnotation sAnno) {
+			numOfAnnotations++;
+			if (kind == AnnotationKind.POS) {
+				posAnnotation = sAnno;
+			} else if (kind == AnnotationKind.LEMMA) {
+				lemmaAnnotation = sAnno;
+			} else {
+				anyAnnotations.put(sAnno.getName(), sAnno);
+			}
+		}
+
+		/**
+		 * like in the {@link TabWriter}, only tokens with POS, lemma and
+		 * further annotations fill the additional columns
+		 */
+		boolean hasColumns() {
+			return posAnnotation != null && lemmaAnnotation != null && numOfAnnotations > 2;
+		}
+	}
+
+	private final Salt2TreetaggerMapper mapper;
+
+	SaltTabWriter(Salt2TreetaggerMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Writes the tokens of the document graph, which are selected by the
+	 * mapper, and the meta annotations of the document to a file.
+	 * 
+	 * @param options
+	 *            the properties as passed to the {@link TabWriter}
+	 */
+	void save(SDocumentGraph sDocumentGraph, Set<SMetaAnnotation> metaAnnotations, URI location,
+			Map<?, ?> options) throws IOException {
+		try (OutputStream out = new FileOutputStream(location.toFileString())) {
+			save(sDocumentGraph, metaAnnotations, out, options);
+		}
+	}
+
+	/**
+	 * Writes the tokens of the document graph, which are selected by the
+	 * mapper, and the meta annotations of the document to a stream, which is
+	 * closed afterwards.
+	 * 
+	 * @param options
+	 *            the properties as passed to the {@link TabWriter}
+	 */
+	void save(SDocumentGraph sDocumentGraph, Set<SMetaAnnotation> metaAnnotations, OutputStream out,
+			Map<?, ?> options) throws IOException {
+		final Properties properties = new Properties();
+		if (options != null) {
+			properties.putAll(options);
+		}
+		String metaTag = properties.getProperty(TabWriter.propertyOutputMetaTag, defaultMetaTag);
+		logger.info(String.format("using meta tag '%s'", metaTag));
+
+		String fileEncoding = properties.getProperty(TabWriter.propertyOutputFileEncoding, defaultOutputFileEncoding);
+		logger.info(String.format("using output file encoding '%s'", fileEncoding));
+
+		boolean exportAnyAnnotation = properties
+				.getProperty(TabWriter.propertyExportAnyAnnotation, defaultExportAnyAnnotation)
+				.equalsIgnoreCase("true");
+		logger.info("exporting any annotation = " + exportAnyAnnotation);
+
+		final List<SToken> tokens = mapper.getRelevantTokens(sDocumentGraph);
+		final Map<SToken, List<SSpan>> token2SpansTable = mapper.getToken2SpansTable(sDocumentGraph);
+		final TokenAnnotations annotations = new TokenAnnotations();
+
+		// count the lines of each span and collect the names of the columns
+		final Map<SSpan, String> spanNames = new IdentityHashMap<>();
+		final Map<SSpan, int[]> spanSizes = new IdentityHashMap<>();
+		final TreeSet<String> columnNamesSet = new TreeSet<>();
+		for (SToken sToken : tokens) {
+			final int numOfLines = countTextualRelations(sToken);
+			if (numOfLines == 0) {
+				continue;
+			}
+			final List<SSpan> spans = token2SpansTable.get(sToken);
+			if (spans != null) {
+				for (SSpan sSpan : spans) {
+					int[] spanSize = spanSizes.get(sSpan);
+					if (spanSize == null) {
+						spanSize = new int[1];
+						spanSizes.put(sSpan, spanSize);
+						spanNames.put(sSpan, mapper.getSpanName(sSpan));
+					}
+					spanSize[0] += numOfLines;
+				}
+			}
+			if (exportAnyAnnotation) {
+				annotations.clear();
+				mapper.classifyTokenAnnotations(sToken, false, annotations::add);
+				if (annotations.hasColumns()) {
+					columnNamesSet.addAll(annotations.anyAnnotations.keySet());
+				}
+			}
+		}
+		final List<String> columnNames = new ArrayList<>(columnNamesSet);
+		if (exportAnyAnnotation) {
+			logger.info(
+					"The following columns appear in the output file additionally to word form, part-of-speech and lemma: "
+							+ columnNames.toString());
+		}
+
+		final SpanEvents<SSpan> spanEvents = new SpanEvents<SSpan>(spanNames::get, sSpan -> spanSizes.get(sSpan)[0]);
+		BufferedWriter fileWriter = new BufferedWriter(new OutputStreamWriter(out, fileEncoding));
+		try {
+			if (!metaAnnotations.isEmpty()) {
+				fileWriter.write(String.format("<%s", metaTag));
+				for (SMetaAnnotation metaAnno : metaAnnotations) {
+					fileWriter.write(String.format(" %s=\"%s\"", metaAnno.getName(), metaAnno.getValue_STEXT()));
+				}
+				fileWriter.write(">\n");
+			}
+
+			for (SToken sToken : tokens) {
+				final List<SSpan> spans = token2SpansTable.get(sToken);
+				for (SRelation<?, ?> rel : sToken.getOutRelations()) {
+					if (!(rel instanceof STextualRelation)) {
+						continue;
+					}
+					STextualRelation sTexRel = (STextualRelation) rel;
+					spanEvents.next(spans != null ? spans : Collections.<SSpan> emptyList());
+
+					// write end tags
+					for (SSpan sSpan : spanEvents.getClosingSpans()) {
+						fileWriter.write("</" + spanNames.get(sSpan) + ">\n");
+					}
+
+					// write opening tags, bigger spans before smaller ones
+					for (SSpan sSpan : spanEvents.getOpeningSpans()) {
+						fileWriter.write("<" + spanNames.get(sSpan));
+						for (SAnnotation sAnno : sSpan.getAnnotations()) {
+							fileWriter.write(" " + sAnno.getName() + "=\"" + sAnno.getValue_STEXT() + "\"");
+						}
+						fileWriter.write(">\n");
+					}
+
+					// write token data
+					annotations.clear();
+					mapper.classifyTokenAnnotations(sToken, true, annotations::add);
+					// the text is written from the primary text without copying it
+					// to a string of its own
+					final int start = sTexRel.getStart();
+					fileWriter.write(sTexRel.getTarget().getText(), start, sTexRel.getEnd() - start);
+
+					fileWriter.write(separator);
+					if (annotations.posAnnotation != null) {
+						fileWriter.write(annotations.posAnnotation.getValue_STEXT());
+					}
+
+					fileWriter.write(separator);
+					if (annotations.lemmaAnnotation != null && annotations.lemmaAnnotation.getValue_STEXT() != null) {
+						fileWriter.write(annotations.lemmaAnnotation.getValue_STEXT());
+					}
+
+					if (exportAnyAnnotation) {
+						final boolean hasColumns = annotations.hasColumns();
+						for (String columnName : columnNames) {
+							fileWriter.write(separator);
+							SAnnotation sAnno = hasColumns ? annotations.anyAnnotations.get(columnName) : null;
+							if (sAnno != null) {
+								fileWriter.write(sAnno.getValue_STEXT());
+							}
+						}
+					}
+
+					fileWriter.write("\n");
+				}
+			}
+
+			// write final end tags
+			spanEvents.end();
+			for (SSpan sSpan : spanEvents.getClosingSpans()) {
+				fileWriter.write("</" + spanNames.get(sSpan) + ">\n");
+			}
+
+			if (!metaAnnotations.isEmpty()) {
+				fileWriter.write(String.format("</%s>\n", metaTag));
+			}
+		} finally {
+			fileWriter.flush();
+			fileWriter.close();
+		}
+	}
+
+	private static int countTextualRelations(SToken sToken) {
+		int numOfTextualRelations = 0;
+		for (SRelation<?, ?> rel : sToken.getOutRelations()) {
+			if (rel instanceof STextualRelation) {
+				numOfTextualRelations++;
+			}
+		}
+		return numOfTextualRelations;
+	}
+}
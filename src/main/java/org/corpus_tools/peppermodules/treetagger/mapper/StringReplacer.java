@@ -0,0 +1,133 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Replaces several strings at once in a single pass over the input. Patterns
+ * are indexed by their first character, at each position the longest matching
+ * pattern is replaced and the scan continues behind it, so a replacement is
+ * never matched again. Empty patterns are ignored.
+ *
+ * An instance is immutable and can be shared between threads.
+ */
+public class StringReplacer {
+	private static final String[] NO_PATTERNS = new String[0];
+
+	/** patterns starting with an ASCII character, longest first */
+	private final String[][] asciiPatterns = new String[128][];
+	/** patterns starting with any other character, longest first */
+	private final Map<Character, String[]> otherPatterns = new HashMap<>();
+	private final Map<String, String> replacements;
+
+	private StringReplacer(Map<String, String> replacements) {
+		this.replacements = replacements;
+		final Map<Character, List<String>> patternsByFirstChar = new HashMap<>();
+		for (String pattern : replacements.keySet()) {
+			List<String> patterns = patternsByFirstChar.get(pattern.charAt(0));
+			if (patterns == null) {
+				patterns = new ArrayList<>();
+				patternsByFirstChar.put(pattern.charAt(0), patterns);
+			}
+			patterns.add(pattern);
+		}
+		Arrays.fill(asciiPatterns, NO_PATTERNS);
+		for (Entry<Character, List<String>> entry : patternsByFirstChar.entrySet()) {
+			final String[] patterns = entry.getValue().toArray(new String[entry.getValue().size()]);
+			Arrays.sort(patterns, new Comparator<String>() {
+				@Override
+				public int compare(String pattern1, String pattern2) {
+					return pattern2.length() - pattern1.length();
+				}
+			});
+			if (entry.getKey() < asciiPatterns.length) {
+				asciiPatterns[entry.getKey()] = patterns;
+			} else {
+				otherPatterns.put(entry.getKey(), patterns);
+			}
+		}
+	}
+
+	/**
+	 * Compiles the mapping of patterns to replacements or returns
+	 * <code>null</code>, if it does not contain any non-empty pattern.
+	 */
+	public static StringReplacer compile(Map<String, String> mapping) {
+		if (mapping == null) {
+			return null;
+		}
+		final Map<String, String> replacements = new HashMap<>();
+		for (Entry<String, String> entry : mapping.entrySet()) {
+			if (entry.getKey() != null && !entry.getKey().isEmpty()) {
+				replacements.put(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
+			}
+		}
+		return replacements.isEmpty() ? null : new StringReplacer(replacements);
+	}
+
+	/**
+	 * Returns the string with all patterns replaced or the same instance, if
+	 * no pattern occurs in it.
+	 */
+	public String replace(String value) {
+		if (value == null) {
+			return null;
+		}
+		StringBuilder result = null;
+		int copiedUntil = 0;
+		int pos = 0;
+		while (pos < value.length()) {
+			final String pattern = findPattern(value, pos);
+			if (pattern == null) {
+				pos++;
+			} else {
+				if (result == null) {
+					result = new StringBuilder(value.length() + 16);
+				}
+				result.append(value, copiedUntil, pos).append(replacements.get(pattern));
+				pos += pattern.length();
+				copiedUntil = pos;
+			}
+		}
+		if (result == null) {
+			return value;
+		}
+		return result.append(value, copiedUntil, value.length()).toString();
+	}
+
+	/** Returns the longest pattern starting at pos or <code>null</code>. */
+	private String findPattern(String value, int pos) {
+		final char c = value.charAt(pos);
+		final String[] patterns = c < asciiPatterns.length ? asciiPatterns[c] : otherPatterns.get(c);
+		if (patterns != null) {
+			for (String pattern : patterns) {
+				if (value.startsWith(pattern, pos)) {
+					return pattern;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -20,25 +20,24 @@ package org.corpus_tools.peppermodules.treetagger.mapper;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.lang3.ArrayUtils;
+import java.util.Set;
 
 import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
 import org.corpus_tools.pepper.impl.PepperMapperImpl;
 import org.corpus_tools.pepper.modules.PepperMapper;
-import org.corpus_tools.pepper.modules.exceptions.PepperModuleDataException;
 import org.corpus_tools.peppermodules.treetagger.TreetaggerImporterProperties;
+import org.corpus_tools.peppermodules.treetagger.TreetaggerImporterSettings;
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
 import org.corpus_tools.peppermodules.treetagger.model.LemmaAnnotation;
 import org.corpus_tools.peppermodules.treetagger.model.POSAnnotation;
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
 import org.corpus_tools.salt.SaltFactory;
 import org.corpus_tools.salt.common.SDocument;
-import org.corpus_tools.salt.common.SPointingRelation;
 import org.corpus_tools.salt.common.SSpan;
 import org.corpus_tools.salt.common.SSpanningRelation;
 import org.corpus_tools.salt.common.STextualDS;
@@ -62,6 +61,26 @@ public class Treetagger2SaltMapper extends PepperMapperImpl implements PepperMap
 		return (TreetaggerImporterProperties) this.getProperties();
 	}
 
+	private TreetaggerImporterSettings settings = null;
+
+	/**
+	 * Sets the settings shared by all mappers of an import.
+	 */
+	public void setSettings(TreetaggerImporterSettings settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Returns the settings set by the importer or a snapshot of the
+	 * properties, if none were set.
+	 */
+	public TreetaggerImporterSettings getSettings() {
+		if (settings == null) {
+			settings = getProps().createSettings();
+		}
+		return settings;
+	}
+
 	private Document ttDocument = null;
 
 	public Document getTtDocument() {
@@ -106,95 +125,78 @@ public class Treetagger2SaltMapper extends PepperMapperImpl implements PepperMap
 	 * auxiliary method
 	 */
 	protected STextualDS createSTextualDS(List<Token> tTokens, SDocument sDocument) {
-		boolean annotateUnannotatedSpans = this.getProps().getAnnotateUnannotatedSpans();
-		boolean makePointingRelations = this.getProps().getMakePointingRelations();
-		List<Boolean> invertPointingRelationsList = this.getProps().getInvertPointingRelations();
-		boolean suppressPointingRelationID = this.getProps().getSuppressPRID();
-		boolean suppressPointingRelationTarget = this.getProps().getSuppressPRTarget();
-		boolean suppressPointingRelationLabel = this.getProps().getSuppressPRLabel();
-		boolean usePRHash = this.getProps().getPRUseHash();
-		List<String> pointingTargetAnnoList = this.getProps().getPointingTargetAnno();
-		List<String> pointingIDAnnoList = this.getProps().getPointingIDAnno();
-		List<String> pointingEdgeAnnoList = this.getProps().getPointingEdgeAnno();
-		List<String> pointingTypeList = this.getProps().getPointingType();
-		List<String> pointingNSList = this.getProps().getPointingNS();
-		String spanAnnoNS = this.getProps().getSpanAnnotationNamespace();
-		boolean annotateAllSpansWithSpanName = this.getProps().getAnnotateAllSpansWithName();
-		boolean prefixSpanAnnotation = this.getProps().getPrefixSpanAnnotation();
-		String prefixSpanSeparator = this.getProps().getPrefixSpanSeparator();
-		String[] separateSpanAnnoNames = this.getProps().getSeparateSpanAnnos();
+		final TreetaggerImporterSettings settings = getSettings();
+		boolean annotateUnannotatedSpans = settings.getAnnotateUnannotatedSpans();
+		boolean makePointingRelations = settings.getMakePointingRelations();
+		String spanAnnoNS = settings.getSpanAnnotationNamespace();
+		boolean annotateAllSpansWithSpanName = settings.getAnnotateAllSpansWithName();
+		boolean prefixSpanAnnotation = settings.getPrefixSpanAnnotation();
+		String prefixSpanSeparator = settings.getPrefixSpanSeparator();
+		Set<String> separateSpanAnnoNameSet = settings.getSeparateSpanAnnos();
 
 		// creating and adding STextualDS
 		STextualDS sText = SaltFactory.createSTextualDS();
-		String textName = getProps().getTextName();
+		String textName = settings.getTextName();
 		if(textName != null && !textName.isEmpty()) {
 			sText.setName(textName);
 		}
-		sDocument.getDocumentGraph().addNode(sText);
 
-		List<SLayer> prLayers = new LinkedList<>();
-		List<String> prLayerNames = new LinkedList<>();
-		if (makePointingRelations){ // Create a layer to put PRs in
-			for (String lname : pointingNSList){
-				SLayer prLayer = SaltFactory.createSLayer();
-				prLayer.setName(lname);
-				prLayer.setGraph(getDocument().getDocumentGraph());
-				prLayers.add(prLayer);
-				prLayerNames.add(lname);
-			}
+		PointingRelationResolver prResolver = null;
+		if (makePointingRelations) {
+			prResolver = new PointingRelationResolver(settings, sDocument.getDocumentGraph(), this);
 		}
 		
-		Hashtable<Span, SSpan> spanTable = new Hashtable<Span, SSpan>();
+		// spans are looked up by their ids, which are dense
+		final SSpan[] spanTable = new SSpan[Treetagger.ensureIds(tTokens)];
+		// the spans created for separated annotations of each span, if any
+		final SSpan[][] spanClones = new SSpan[spanTable.length][];
 
-		// prTable is a list of Hashtables, one per type of pointing relation in comma-separated PR property values
-		List<Hashtable<SSpan,String[]>> prTableList = new LinkedList<>(); // Maps SSpans to a list containing [target, edge-anno]
-		List<Hashtable<String,SSpan>> id2spanList = new LinkedList<>(); // Maps ids to SSpan
-		for (int i=0;i<pointingTargetAnnoList.size();i++){
-				Hashtable<SSpan,String[]> tab = new Hashtable<>();
-				Hashtable<String,SSpan> spantab = new Hashtable<>();
-				prTableList.add(tab);
-				id2spanList.add(spantab);
+		// the text is assembled in a buffer sized for all tokens and separators
+		final String separator = settings.getSeparatorAfterToken();
+		int textLength = 0;
+		int numOfSpanReferences = 0;
+		for (Token tToken : tTokens) {
+			textLength += tToken.getText().length() + separator.length();
+			numOfSpanReferences += tToken.getSpans().size();
 		}
-
-		
-		String text = null;
+		// nodes and relations are inserted at once after all of them were created
+		final GraphBuilder builder = new GraphBuilder(sDocument.getDocumentGraph(),
+				1 + tTokens.size() + spanTable.length, tTokens.size() + numOfSpanReferences);
+		builder.addNode(sText);
+		final StringBuilder text = new StringBuilder(Math.max(textLength - separator.length(), 0));
 		int start = 0;
 		int end = 0;
-		Map<String, String> replMap = ((TreetaggerImporterProperties) getProperties()).getReplacementMapping();
+		final StringReplacer replacer = settings.getReplacer();
+		final boolean replaceInAnnos = replacer != null && settings.getReplaceInAnnos();
 		Map<String, SLayer> layerMap = new Hashtable<>();
 
 		// for (Token tToken: tTokens) {
 		for (int tokenIndex = 0; tokenIndex < tTokens.size(); tokenIndex++) {
 			Token tToken = tTokens.get(tokenIndex);
-			if (replMap != null) {
-				for (Map.Entry<String, String> entry : replMap.entrySet()) {
-					tToken.setText(tToken.getText().replace(entry.getKey(), entry.getValue()));
-					if (this.getProps().getReplaceInAnnos()) {
-						for (Annotation tAnnotation : tToken.getAnnotations()) {
-							tAnnotation.setValue(tAnnotation.getValue().replace(entry.getKey(), entry.getValue()));
-						}
+			if (replacer != null) {
+				tToken.setText(replacer.replace(tToken.getText()));
+				if (replaceInAnnos) {
+					for (Annotation tAnnotation : tToken.getAnnotations()) {
+						tAnnotation.setValue(replacer.replace(tAnnotation.getValue()));
 					}
 				}
 			}
-			if (text == null) {
-				start = 0;
-				end = tToken.getText().length();
-				text = tToken.getText();
-			} else {
-				start = text.length() + this.getProps().getSeparatorAfterToken().length();
-				end = start + tToken.getText().length();
-				text = text + this.getProps().getSeparatorAfterToken() + tToken.getText();
+			if (tokenIndex > 0) {
+				text.append(separator);
 			}
+			start = text.length();
+			text.append(tToken.getText());
+			end = text.length();
 
 			// creating and adding token
 			SToken sToken = this.createSToken(tToken);
-			sDocument.getDocumentGraph().addNode(sToken);
+			builder.addNode(sToken);
 
 			// creating and adding spans and spanning relations
 			for (int i = 0; i < tToken.getSpans().size(); i++) {
 				Span tSpan = tToken.getSpans().get(i);
-				SSpan sSpan = null;
-				if (!spanTable.containsKey(tSpan)) {
+				SSpan sSpan = spanTable[tSpan.getId()];
+				if (sSpan == null) {
 					sSpan = SaltFactory.createSSpan();
 					if (tSpan.getName().contains(":")) { // span has explicit namespace in tag name
 						String ns = tSpan.getName().split(":")[0];
@@ -208,12 +210,11 @@ public class Treetagger2SaltMapper extends PepperMapperImpl implements PepperMap
 							lyr.setGraph(getDocument().getDocumentGraph());
 							layerMap.put(ns, lyr);
 						}
-						sSpan.addLayer(lyr);
+						builder.addLayer(sSpan, lyr);
 					}
-					
-					spanTable.put(tSpan, sSpan);
-					sSpan.setGraph(sDocument.getDocumentGraph());
-					sSpan.setName(tSpan.getName());
+
+					spanTable[tSpan.getId()] = sSpan;
+					builder.addNode(sSpan, tSpan.getName());
 					List<Annotation> tAnnotations = tSpan.getAnnotations();
 					if ((annotateAllSpansWithSpanName) || ((tAnnotations.size() == 0) && (annotateUnannotatedSpans))) {
 						sSpan.createAnnotation(spanAnnoNS, tSpan.getName().toLowerCase(), tSpan.getName().toLowerCase());
@@ -226,151 +227,77 @@ public class Treetagger2SaltMapper extends PepperMapperImpl implements PepperMap
 						if (spanAnnoNS != null){
 							anno.setNamespace(spanAnnoNS);
 						}
-						// Create the span annotation, unless it is a pointing relation edge annotation
-						// Check for each set of pointing relation instructions if multiple comma separated values were specified
-						for (int k=0;k<pointingTargetAnnoList.size();k++){
-							String pointingTargetAnno = pointingTargetAnnoList.get(k);
-							String pointingEdgeAnno = pointingEdgeAnnoList.get(k);
-							String pointingIDAnno = pointingIDAnnoList.get(k);
-							Hashtable<SSpan,String[]> prTable = prTableList.get(k);
-							Hashtable<String,SSpan> id2span = id2spanList.get(k);
-							if (!
-								(makePointingRelations && 
-									((pointingTargetAnnoList.contains(anno.getName()) && suppressPointingRelationTarget) || 
-									(pointingEdgeAnnoList.contains(anno.getName())&& suppressPointingRelationLabel)|| 
-									(pointingIDAnnoList.contains(anno.getName()) && suppressPointingRelationID ))
-								)
-								)
-							{								
+						// Create the span annotation, unless it only encodes a pointing relation
+						if (prResolver == null) {
+							sSpan.addAnnotation(anno);
+						} else {
+							if (!prResolver.isSuppressed(anno.getName())) {
 								sSpan.addAnnotation(anno);
 							}
-							if (makePointingRelations && (anno.getName().equals(pointingTargetAnno) || 
-								anno.getName().equals(pointingEdgeAnno) || 
-								anno.getName().equals(pointingIDAnno) ))
-							{
-								if (!prTable.containsKey(sSpan)){ // Initialize PR entry for this sspan
-									String[] initPR = new String[2];
-									prTable.put(sSpan,initPR);
-								}
-								String[] prInfo = prTable.get(sSpan);							
-								if (anno.getName().equals(pointingTargetAnno)){ // Target marker
-									prInfo[0] = anno.getValue_STEXT();
-									if (prInfo[0].length() > 0){
-										if (usePRHash && prInfo[0].startsWith("#")){  // Trim # if using href syntax
-											prInfo[0] = prInfo[0].substring(1);
-										}
-									}
-									prTable.put(sSpan,prInfo);
-								}
-								else if (anno.getName().equals(pointingIDAnno)){ // ID marker
-									id2span.put(anno.getValue_STEXT(),sSpan);
-								}
-								else{ // Edge annotation
-									prInfo[1] = anno.getValue_STEXT();
-									prTable.put(sSpan,prInfo);								
-								}
-							}
+							prResolver.addAnnotation(sSpan, anno);
 						}
 					}
-				} else {
-					sSpan = spanTable.get(tSpan);
+					if (separateSpanAnnoNameSet != null && sSpan.getAnnotations().size() > 1) {
+						spanClones[tSpan.getId()] = this.separateSpanAnnotations(sSpan, tSpan.getName(),
+								separateSpanAnnoNameSet, builder);
+					}
 				}
 				SSpanningRelation sSpanningRelation = SaltFactory.createSSpanningRelation();
 				sSpanningRelation.setSource(sSpan);
 				sSpanningRelation.setTarget(sToken);
-				sSpanningRelation.setGraph(sDocument.getDocumentGraph());
+				builder.addRelation(sSpanningRelation);
+				if (spanClones[tSpan.getId()] != null) {
+					for (SSpan clone : spanClones[tSpan.getId()]) {
+						SSpanningRelation cloneSpanningRelation = SaltFactory.createSSpanningRelation();
+						cloneSpanningRelation.setSource(clone);
+						cloneSpanningRelation.setTarget(sToken);
+						builder.addRelation(cloneSpanningRelation);
+					}
+				}
 			}
 			
 			STextualRelation sTextRel = this.createSTextualRelation(sToken, sText, start, end);
-			sDocument.getDocumentGraph().addRelation(sTextRel);
+			builder.addRelation(sTextRel);
 		}
+		builder.build();
 
-		// Check prTable by each pr instruction set (possibly multiple sets were specified with comma-separated property values)
-		for (int i=0;i<pointingTargetAnnoList.size();i++){
-			String pointingTargetAnno = pointingTargetAnnoList.get(i);
-			String pointingEdgeAnno = pointingEdgeAnnoList.get(i);
-			String pointingIDAnno = pointingIDAnnoList.get(i);
-			Hashtable<SSpan,String[]> prTable = prTableList.get(i);
-			Hashtable<String,SSpan> id2span = id2spanList.get(i);
-			String pointingNS = "";
-			SLayer prLayer = null;
-			if (prLayerNames.size() > i){
-				pointingNS = prLayerNames.get(i);
-				prLayer = prLayers.get(i);
-			}
-			String pointingType = pointingTypeList.get(i);
-			boolean invertPointingRelations = invertPointingRelationsList.get(i);
-
-			for (SSpan src : prTable.keySet()){
-				String[] prInfo = prTable.get(src);
-				String trgID = prInfo[0];
-				String edgeAnno = prInfo[1];
-				if (trgID != null){
-					if (id2span.containsKey(trgID)){
-						SSpan trg = id2span.get(trgID);
-						SPointingRelation rel = SaltFactory.createSPointingRelation();
-						if (edgeAnno != null && edgeAnno.length() > 0){
-							SAnnotation anno = SaltFactory.createSAnnotation();
-							anno.setName(pointingEdgeAnno);
-							anno.setValue(edgeAnno);
-							anno.setNamespace(pointingNS);
-							rel.addAnnotation(anno);
-						}
-						if (!invertPointingRelations){
-							rel.setSource(src);
-							rel.setTarget(trg);
-						}
-						else{
-							rel.setSource(trg);
-							rel.setTarget(src);
-						}
-						rel.setType(pointingType);
-						rel.addLayer(prLayer);
-						sDocument.getDocumentGraph().addRelation(rel);
-
-					}
-					else{
-						throw new PepperModuleDataException(this,"Input error: pointing relation target ID " + pointingTargetAnno + "=" + trgID + " refers to a non-existent span annotation "+pointingIDAnno+"="+ trgID +"\n" );
-					}
-				}
-			}
+		if (prResolver != null) {
+			prResolver.resolve();
 		}
-		if (separateSpanAnnoNames!=null){
-			for (SSpan span : spanTable.values()){
-				if (span.getAnnotations().size() > 1){
-					int newAnnoNameCounter = 0;
-					List<String[]> toRemove = new ArrayList<>();
-					for (SAnnotation anno : span.getAnnotations()){
-						if (ArrayUtils.contains(separateSpanAnnoNames,anno.getName())){
-							// Clone the span
-							newAnnoNameCounter++;
-							SSpan newSpan = SaltFactory.createSSpan();
-							newSpan.setGraph(sDocument.getDocumentGraph());
-							newSpan.setName(span.getName() + "_" + Integer.toString(newAnnoNameCounter));
+		sText.setText(tTokens.isEmpty() ? null : text.toString());
+		return (sText);
+	}
 
-							// Add annotation to clone
-							newSpan.createAnnotation(anno.getNamespace(), anno.getName(), anno.getValue());
-							String[] rem = new String[]{anno.getNamespace(), anno.getName()};
-							toRemove.add(rem);
-							List<SToken> spanToks = span.getGraph().getOverlappedTokens(span);
-							for (SToken tok : spanToks){
-								SSpanningRelation sSpanningRelation = SaltFactory.createSSpanningRelation();
-								sSpanningRelation.setSource(newSpan);
-								sSpanningRelation.setTarget(tok);
-								sSpanningRelation.setGraph(sDocument.getDocumentGraph());
-							}
-						}
-					}
-					// Remove cloned annotations from original
-					for (String[] rem : toRemove){
-						span.removeLabel(rem[0], rem[1]);
-					}
+	/**
+	 * Moves each annotation of the span, whose name is contained in the given
+	 * set, to a clone of the span named after the given span name. The clones
+	 * are added to the builder, but do not span any token yet.
+	 *
+	 * @return the clones or <code>null</code>, if no annotation was moved
+	 */
+	private SSpan[] separateSpanAnnotations(SSpan sSpan, String spanName, Set<String> separateSpanAnnoNames,
+			GraphBuilder builder) {
+		List<SSpan> clones = null;
+		for (SAnnotation anno : sSpan.getAnnotations()) {
+			if (separateSpanAnnoNames.contains(anno.getName())) {
+				if (clones == null) {
+					clones = new ArrayList<>();
 				}
+				SSpan clone = SaltFactory.createSSpan();
+				builder.addNode(clone, spanName + "_" + Integer.toString(clones.size() + 1));
+				clone.createAnnotation(anno.getNamespace(), anno.getName(), anno.getValue());
+				clones.add(clone);
 			}
 		}
-
-		sText.setText(text);
-		return (sText);
+		if (clones == null) {
+			return null;
+		}
+		// Remove cloned annotations from original
+		for (SSpan clone : clones) {
+			SAnnotation anno = clone.getAnnotations().iterator().next();
+			sSpan.removeLabel(anno.getNamespace(), anno.getName());
+		}
+		return clones.toArray(new SSpan[clones.size()]);
 	}
 
 	/*
@@ -19,6 +19,17 @@ package org.corpus_tools.peppermodules.treetagger.model;
 
 import java.util.List;
 
+/**
+ * Documents, tokens and spans are compared by identity, so that they are cheap
+ * keys of maps and sets, their content is compared by
+ * {@link #structurallyEquals(Object)}.
+ */
 public interface AnnotatableElement {
 	List<Annotation> getAnnotations();
+
+	/**
+	 * Returns whether the given object is an element of the same kind with
+	 * equal content, which is compared in depth.
+	 */
+	boolean structurallyEquals(Object obj);
 }
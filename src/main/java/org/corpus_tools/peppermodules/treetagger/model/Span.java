@@ -26,4 +26,13 @@ public interface Span extends AnnotatableElement {
 
 	List<Token> getTokens();
 
+	/**
+	 * Returns a number, which is unique among the spans of the document and
+	 * is assigned when the document is read or created, or -1 if none was
+	 * assigned.
+	 */
+	int getId();
+
+	void setId(int id);
+
 } // Span
@@ -40,4 +40,13 @@ public interface Token extends AnnotatableElement {
 	
 	long getLine();
 	void setLine(long line);
+
+	/**
+	 * Returns the position of the token within its document, which is
+	 * assigned when the document is read or created, or -1 if none was
+	 * assigned.
+	 */
+	int getId();
+
+	void setId(int id);
 }
@@ -17,6 +17,8 @@
  */
 package org.corpus_tools.peppermodules.treetagger.model;
 
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
+
 public interface TreetaggerFactory {
 	TreetaggerFactory eINSTANCE = org.corpus_tools.peppermodules.treetagger.model.impl.TreetaggerFactoryImpl.init();
 
@@ -28,6 +30,12 @@ public interface TreetaggerFactory {
 
 	Annotation createAnnotation(String name, String value);
 
+	/**
+	 * Creates the annotation like {@link #createAnnotation(String, String)},
+	 * but takes its name and value from the given pool.
+	 */
+	Annotation createAnnotation(String name, String value, StringPool pool);
+
 	POSAnnotation createPOSAnnotation();
 
 	LemmaAnnotation createLemmaAnnotation();
@@ -19,15 +19,27 @@ package org.corpus_tools.peppermodules.treetagger.model.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.corpus_tools.peppermodules.treetagger.model.AnnotatableElement;
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
+import org.corpus_tools.peppermodules.treetagger.model.LemmaAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.POSAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
 
 public abstract class AnnotatableElementImpl implements AnnotatableElement {
-	protected List<Annotation> annotations = new ArrayList<>();
+	protected List<Annotation> annotations;
 
 	protected AnnotatableElementImpl() {
+		this(new ArrayList<Annotation>());
+	}
+
+	/**
+	 * Creates the element with the given, empty list of annotations.
+	 */
+	protected AnnotatableElementImpl(List<Annotation> annotations) {
 		super();
+		this.annotations = annotations;
 	}
 
 	@Override
@@ -35,28 +47,39 @@ public abstract class AnnotatableElementImpl implements AnnotatableElement {
 		return annotations;
 	}
 
-	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((annotations == null) ? 0 : annotations.hashCode());
-		return result;
+	/**
+	 * Returns whether both lists contain annotations of the same kinds with the
+	 * same names and values in the same order.
+	 */
+	static boolean annotationsStructurallyEqual(List<Annotation> annotations, List<Annotation> others) {
+		if (annotations.size() != others.size()) {
+			return false;
+		}
+		for (int i = 0; i < annotations.size(); i++) {
+			final Annotation annotation = annotations.get(i);
+			final Annotation other = others.get(i);
+			if ((annotation instanceof POSAnnotation) != (other instanceof POSAnnotation)
+					|| (annotation instanceof LemmaAnnotation) != (other instanceof LemmaAnnotation)
+					|| !Objects.equals(annotation.getName(), other.getName())
+					|| !Objects.equals(annotation.getValue(), other.getValue())) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (obj == null)
+	/**
+	 * Returns whether the tokens of both lists are structurally equal pairwise.
+	 */
+	static boolean tokensStructurallyEqual(List<Token> tokens, List<Token> others) {
+		if (tokens.size() != others.size()) {
 			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		AnnotatableElementImpl other = (AnnotatableElementImpl) obj;
-		if (annotations == null) {
-			if (other.annotations != null)
+		}
+		for (int i = 0; i < tokens.size(); i++) {
+			if (!tokens.get(i).structurallyEquals(others.get(i))) {
 				return false;
-		} else if (!annotations.equals(other.annotations))
-			return false;
+			}
+		}
 		return true;
 	}
 
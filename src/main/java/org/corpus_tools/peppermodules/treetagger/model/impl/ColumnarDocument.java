@@ -0,0 +1,666 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.peppermodules.treetagger.model.AnnotatableElement;
+import org.corpus_tools.peppermodules.treetagger.model.Annotation;
+import org.corpus_tools.peppermodules.treetagger.model.AnyAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.LemmaAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.POSAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+
+/**
+ * A read-mostly {@link Document}, which stores the text and each annotation
+ * column of its tokens as arrays of codes into a dictionary of the distinct
+ * strings of the document, and its spans as ranges of token indexes. Unlike
+ * {@link DocumentImpl} it does not hold any object per token, the tokens and
+ * their annotations are views, which are created when they are accessed and
+ * read and write through to the arrays. Spans are few and their views are
+ * kept, so that they can be compared by identity.
+ *
+ * The i-th annotation of every token belongs to the same column and therefore
+ * has the same name, like it is the case for all tokens read by the
+ * {@link org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.Deserializer}.
+ * Tokens cannot be added, removed or relinked after the document was built.
+ */
+public class ColumnarDocument extends AnnotatableElementImpl implements Document {
+	/** code of a column a token does not have */
+	private static final int ABSENT = -1;
+	private static final int[] NO_INTS = new int[0];
+
+	private String name = null;
+	private int numOfTokens = 0;
+	/** the distinct strings of the document */
+	private String[] dictionary = new String[16];
+	private int dictionarySize = 0;
+	/**
+	 * codes of the strings in {@link #dictionary}, only kept while strings are
+	 * added
+	 */
+	private Map<String, Integer> codes = new HashMap<>();
+	private int[] texts = new int[16];
+	private int[] lines = new int[16];
+	/** the name of each annotation column */
+	private String[] columnNames = new String[0];
+	/** the value codes of each annotation column per token */
+	private int[][] columns = new int[0][];
+
+	private int numOfSpans = 0;
+	private String[] spanNames = new String[4];
+	private int[] spanIds = new int[4];
+	/** index of the first token of each span */
+	private int[] spanStarts = new int[4];
+	/** index behind the last token of each span */
+	private int[] spanEnds = new int[4];
+	private List<Annotation>[] spanAnnotations = newAnnotationLists(4);
+	private SpanView[] spanViews = null;
+	/**
+	 * the spans of token i are referenced by {@link #spanRefs} from
+	 * tokenSpanOffsets[i] to tokenSpanOffsets[i+1]
+	 */
+	private int[] tokenSpanOffsets = null;
+	private int[] spanRefs = NO_INTS;
+
+	private final List<Token> tokens = new AbstractList<Token>() {
+		@Override
+		public Token get(int index) {
+			checkTokenIndex(index);
+			return new TokenView(index);
+		}
+
+		@Override
+		public int size() {
+			return numOfTokens;
+		}
+	};
+
+	protected ColumnarDocument() {
+		super();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void setName(String newName) {
+		name = newName;
+	}
+
+	/**
+	 * Returns a read-only list of the tokens, each call of
+	 * {@link List#get(int)} creates a new view.
+	 */
+	@Override
+	public List<Token> getTokens() {
+		return tokens;
+	}
+
+	@Override
+	public boolean structurallyEquals(Object obj) {
+		if (!(obj instanceof Document)) {
+			return false;
+		}
+		final Document other = (Document) obj;
+		return Objects.equals(name, other.getName())
+				&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations())
+				&& tokensStructurallyEqual(getTokens(), other.getTokens());
+	}
+
+	@Override
+	public String toString() {
+		return "document [name=" + name + tokens + "]";
+	}
+
+	private void checkTokenIndex(int index) {
+		if (index < 0 || index >= numOfTokens) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numOfTokens);
+		}
+	}
+
+	private String decode(int code) {
+		return dictionary[code];
+	}
+
+	private int encode(String string) {
+		if (codes == null) {
+			codes = new HashMap<>(dictionarySize * 2);
+			for (int code = 0; code < dictionarySize; code++) {
+				codes.put(dictionary[code], code);
+			}
+		}
+		Integer code = codes.get(string);
+		if (code == null) {
+			if (dictionarySize == dictionary.length) {
+				dictionary = Arrays.copyOf(dictionary, 2 * dictionarySize);
+			}
+			code = dictionarySize;
+			dictionary[dictionarySize++] = string;
+			codes.put(string, code);
+		}
+		return code;
+	}
+
+	private int getNumOfAnnotations(int tokenIndex) {
+		int numOfAnnotations = 0;
+		while (numOfAnnotations < columns.length && columns[numOfAnnotations][tokenIndex] != ABSENT) {
+			numOfAnnotations++;
+		}
+		return numOfAnnotations;
+	}
+
+	private SpanView getSpanView(int spanIndex) {
+		if (spanViews[spanIndex] == null) {
+			spanViews[spanIndex] = new SpanView(spanIndex);
+		}
+		return spanViews[spanIndex];
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<Annotation>[] newAnnotationLists(int size) {
+		return new List[size];
+	}
+
+	/**
+	 * A token of the document identified by its index.
+	 */
+	private class TokenView implements Token {
+		private final int index;
+
+		private TokenView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public List<Annotation> getAnnotations() {
+			final int numOfAnnotations = getNumOfAnnotations(index);
+			return new AbstractList<Annotation>() {
+				@Override
+				public Annotation get(int column) {
+					if (column < 0 || column >= numOfAnnotations) {
+						throw new IndexOutOfBoundsException("Index: " + column + ", Size: " + numOfAnnotations);
+					}
+					return createAnnotationView(index, column);
+				}
+
+				@Override
+				public int size() {
+					return numOfAnnotations;
+				}
+			};
+		}
+
+		@Override
+		public String getText() {
+			return decode(texts[index]);
+		}
+
+		@Override
+		public void setText(String value) {
+			texts[index] = encode(value);
+		}
+
+		@Override
+		public POSAnnotation getPosAnnotation() {
+			POSAnnotation posAnno = null;
+			for (Annotation anno : getAnnotations()) {
+				if (anno instanceof POSAnnotation) {
+					posAnno = (POSAnnotation) anno;
+				}
+			}
+			return posAnno;
+		}
+
+		@Override
+		public void setPosAnnotation(POSAnnotation value) {
+			throw new UnsupportedOperationException("Annotations cannot be added to a token of a columnar document.");
+		}
+
+		@Override
+		public LemmaAnnotation getLemmaAnnotation() {
+			LemmaAnnotation lemmaAnno = null;
+			for (Annotation anno : getAnnotations()) {
+				if (anno instanceof LemmaAnnotation) {
+					lemmaAnno = (LemmaAnnotation) anno;
+				}
+			}
+			return lemmaAnno;
+		}
+
+		@Override
+		public void setLemmaAnnotation(LemmaAnnotation value) {
+			throw new UnsupportedOperationException("Annotations cannot be added to a token of a columnar document.");
+		}
+
+		@Override
+		public Document getDocument() {
+			return ColumnarDocument.this;
+		}
+
+		@Override
+		public void setDocument(Document value) {
+			if (value != ColumnarDocument.this) {
+				throw new UnsupportedOperationException("A token of a columnar document cannot be moved.");
+			}
+		}
+
+		@Override
+		public List<Span> getSpans() {
+			if (tokenSpanOffsets == null) {
+				return Collections.emptyList();
+			}
+			final int first = tokenSpanOffsets[index];
+			final int size = tokenSpanOffsets[index + 1] - first;
+			return new AbstractList<Span>() {
+				@Override
+				public Span get(int i) {
+					if (i < 0 || i >= size) {
+						throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+					}
+					return getSpanView(spanRefs[first + i]);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+
+		@Override
+		public long getLine() {
+			return lines[index];
+		}
+
+		@Override
+		public void setLine(long line) {
+			lines[index] = (int) line;
+		}
+
+		/** Returns the index of the token, which cannot be changed. */
+		@Override
+		public int getId() {
+			return index;
+		}
+
+		@Override
+		public void setId(int id) {
+			if (id != index) {
+				throw new UnsupportedOperationException(
+						"The id of a token of a columnar document is its index " + index + ".");
+			}
+		}
+
+		@Override
+		public boolean structurallyEquals(Object obj) {
+			if (!(obj instanceof Token)) {
+				return false;
+			}
+			final Token other = (Token) obj;
+			return getLine() == other.getLine() && Objects.equals(getText(), other.getText())
+					&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations());
+		}
+
+		/** Views of the same token are equal. */
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(ColumnarDocument.this) + index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TokenView)) {
+				return false;
+			}
+			final TokenView other = (TokenView) obj;
+			return other.getDocument() == getDocument() && other.index == index;
+		}
+
+		@Override
+		public String toString() {
+			return getText() + "@" + getLine() + getAnnotations();
+		}
+	}
+
+	private Annotation createAnnotationView(int tokenIndex, int column) {
+		final String columnName = columnNames[column];
+		if (POSAnnotation.NAME.equalsIgnoreCase(columnName)) {
+			return new POSAnnotationView(tokenIndex, column);
+		} else if (LemmaAnnotation.NAME.equalsIgnoreCase(columnName)) {
+			return new LemmaAnnotationView(tokenIndex, column);
+		}
+		return new AnyAnnotationView(tokenIndex, column);
+	}
+
+	/**
+	 * The value of a token in an annotation column.
+	 */
+	private abstract class AnnotationView implements Annotation {
+		private final int tokenIndex;
+		private final int column;
+
+		private AnnotationView(int tokenIndex, int column) {
+			this.tokenIndex = tokenIndex;
+			this.column = column;
+		}
+
+		@Override
+		public String getName() {
+			return columnNames[column];
+		}
+
+		@Override
+		public void setName(String value) {
+			throw new UnsupportedOperationException("The name of a column of a columnar document cannot be changed.");
+		}
+
+		@Override
+		public String getValue() {
+			return decode(columns[column][tokenIndex]);
+		}
+
+		@Override
+		public void setValue(String value) {
+			columns[column][tokenIndex] = encode(value);
+		}
+
+		@Override
+		public AnnotatableElement getAnnotatableElement() {
+			return new TokenView(tokenIndex);
+		}
+
+		@Override
+		public void setAnnotatableElement(AnnotatableElement value) {
+			throw new UnsupportedOperationException("An annotation of a columnar document cannot be moved.");
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(ColumnarDocument.this) + tokenIndex) + column;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AnnotationView)) {
+				return false;
+			}
+			final AnnotationView other = (AnnotationView) obj;
+			return other.getAnnotatableElement().equals(getAnnotatableElement()) && other.column == column;
+		}
+
+		@Override
+		public String toString() {
+			return getName() + " = " + getValue();
+		}
+	}
+
+	private class POSAnnotationView extends AnnotationView implements POSAnnotation {
+		private POSAnnotationView(int tokenIndex, int column) {
+			super(tokenIndex, column);
+		}
+	}
+
+	private class LemmaAnnotationView extends AnnotationView implements LemmaAnnotation {
+		private LemmaAnnotationView(int tokenIndex, int column) {
+			super(tokenIndex, column);
+		}
+	}
+
+	private class AnyAnnotationView extends AnnotationView implements AnyAnnotation {
+		private AnyAnnotationView(int tokenIndex, int column) {
+			super(tokenIndex, column);
+		}
+	}
+
+	/**
+	 * A span of the document, which covers a range of tokens.
+	 */
+	private class SpanView implements Span {
+		private final int spanIndex;
+
+		private SpanView(int spanIndex) {
+			this.spanIndex = spanIndex;
+		}
+
+		@Override
+		public List<Annotation> getAnnotations() {
+			return spanAnnotations[spanIndex];
+		}
+
+		@Override
+		public String getName() {
+			return spanNames[spanIndex];
+		}
+
+		@Override
+		public void setName(String value) {
+			spanNames[spanIndex] = value;
+		}
+
+		/** Returns a read-only list of the tokens of the span. */
+		@Override
+		public List<Token> getTokens() {
+			return tokens.subList(spanStarts[spanIndex], spanEnds[spanIndex]);
+		}
+
+		@Override
+		public int getId() {
+			return spanIds[spanIndex];
+		}
+
+		@Override
+		public void setId(int id) {
+			spanIds[spanIndex] = id;
+		}
+
+		@Override
+		public boolean structurallyEquals(Object obj) {
+			if (!(obj instanceof Span)) {
+				return false;
+			}
+			final Span other = (Span) obj;
+			return Objects.equals(getName(), other.getName())
+					&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations())
+					&& tokensStructurallyEqual(getTokens(), other.getTokens());
+		}
+
+		@Override
+		public String toString() {
+			return getName() + getAnnotations();
+		}
+	}
+
+	/**
+	 * Builds a {@link ColumnarDocument} from tokens and spans passed in reading
+	 * order, e.g. by a
+	 * {@link org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.DeserializerListener}.
+	 * The passed tokens are not kept, the annotations of the passed spans are.
+	 */
+	public static class Builder {
+		private final ColumnarDocument document = new ColumnarDocument();
+		/** the indexes of all spans, which were started, but not ended */
+		private final Map<Span, Integer> openSpans = new IdentityHashMap<>();
+
+		public Builder startSpan(Span span) {
+			final ColumnarDocument doc = document;
+			if (doc.numOfSpans == doc.spanNames.length) {
+				final int capacity = 2 * doc.numOfSpans;
+				doc.spanNames = Arrays.copyOf(doc.spanNames, capacity);
+				doc.spanIds = Arrays.copyOf(doc.spanIds, capacity);
+				doc.spanStarts = Arrays.copyOf(doc.spanStarts, capacity);
+				doc.spanEnds = Arrays.copyOf(doc.spanEnds, capacity);
+				doc.spanAnnotations = Arrays.copyOf(doc.spanAnnotations, capacity);
+			}
+			final int spanIndex = doc.numOfSpans++;
+			doc.spanNames[spanIndex] = span.getName();
+			doc.spanIds[spanIndex] = span.getId();
+			doc.spanStarts[spanIndex] = ABSENT;
+			doc.spanEnds[spanIndex] = ABSENT;
+			doc.spanAnnotations[spanIndex] = span.getAnnotations();
+			openSpans.put(span, spanIndex);
+			return this;
+		}
+
+		/**
+		 * Adds the token as the last token of the document and of all passed
+		 * spans, which must have been started before.
+		 */
+		public Builder addToken(Token token, List<Span> spans) {
+			final ColumnarDocument doc = document;
+			final int tokenIndex = doc.numOfTokens;
+			if (tokenIndex == doc.texts.length) {
+				doc.texts = Arrays.copyOf(doc.texts, 2 * tokenIndex);
+				doc.lines = Arrays.copyOf(doc.lines, 2 * tokenIndex);
+				for (int column = 0; column < doc.columns.length; column++) {
+					doc.columns[column] = grow(doc.columns[column], 2 * tokenIndex);
+				}
+			}
+			doc.texts[tokenIndex] = doc.encode(token.getText());
+			doc.lines[tokenIndex] = (int) token.getLine();
+			final List<Annotation> annotations = token.getAnnotations();
+			for (int column = 0; column < annotations.size(); column++) {
+				final Annotation annotation = annotations.get(column);
+				if (column == doc.columns.length) {
+					doc.columnNames = Arrays.copyOf(doc.columnNames, column + 1);
+					doc.columnNames[column] = annotation.getName();
+					doc.columns = Arrays.copyOf(doc.columns, column + 1);
+					doc.columns[column] = grow(NO_INTS, doc.texts.length);
+				} else if (!doc.columnNames[column].equals(annotation.getName())) {
+					throw new PepperModuleException("Cannot add token '" + token.getText() + "' to columnar document, "
+							+ "because its annotation '" + annotation.getName() + "' is not in column '"
+							+ doc.columnNames[column] + "'. ");
+				}
+				doc.columns[column][tokenIndex] = doc.encode(annotation.getValue());
+			}
+			for (Span span : spans) {
+				final Integer spanIndex = openSpans.get(span);
+				if (spanIndex == null) {
+					throw new PepperModuleException("Cannot add token '" + token.getText()
+							+ "' to columnar document, because its span '" + span.getName() + "' was not started. ");
+				}
+				if (doc.spanStarts[spanIndex] == ABSENT) {
+					doc.spanStarts[spanIndex] = tokenIndex;
+				}
+				doc.spanEnds[spanIndex] = tokenIndex + 1;
+			}
+			doc.numOfTokens++;
+			return this;
+		}
+
+		public Builder endSpan(Span span) {
+			openSpans.remove(span);
+			return this;
+		}
+
+		/** Removes the span from the document and from all of its tokens. */
+		public Builder discardSpan(Span span) {
+			final Integer spanIndex = openSpans.remove(span);
+			if (spanIndex != null) {
+				document.spanStarts[spanIndex] = ABSENT;
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the document with the name and annotations of the given
+		 * document. The builder must not be used afterwards.
+		 */
+		public ColumnarDocument build(Document template) {
+			final ColumnarDocument doc = document;
+			doc.name = template.getName();
+			doc.annotations.addAll(template.getAnnotations());
+			doc.dictionary = Arrays.copyOf(doc.dictionary, doc.dictionarySize);
+			doc.codes = null;
+			doc.texts = Arrays.copyOf(doc.texts, doc.numOfTokens);
+			doc.lines = Arrays.copyOf(doc.lines, doc.numOfTokens);
+			for (int column = 0; column < doc.columns.length; column++) {
+				doc.columns[column] = Arrays.copyOf(doc.columns[column], doc.numOfTokens);
+			}
+			linkSpans(doc);
+			return doc;
+		}
+
+		/**
+		 * Drops discarded spans and indexes the spans of each token, the most
+		 * recently started span first like the spans of the tokens passed to
+		 * {@link #addToken(Token, List)}.
+		 */
+		private static void linkSpans(ColumnarDocument doc) {
+			int numOfSpans = 0;
+			int numOfSpanRefs = 0;
+			for (int spanIndex = 0; spanIndex < doc.numOfSpans; spanIndex++) {
+				if (doc.spanStarts[spanIndex] != ABSENT) {
+					doc.spanNames[numOfSpans] = doc.spanNames[spanIndex];
+					doc.spanIds[numOfSpans] = doc.spanIds[spanIndex];
+					doc.spanStarts[numOfSpans] = doc.spanStarts[spanIndex];
+					doc.spanEnds[numOfSpans] = doc.spanEnds[spanIndex];
+					doc.spanAnnotations[numOfSpans] = doc.spanAnnotations[spanIndex];
+					numOfSpanRefs += doc.spanEnds[spanIndex] - doc.spanStarts[spanIndex];
+					numOfSpans++;
+				}
+			}
+			doc.numOfSpans = numOfSpans;
+			doc.spanNames = Arrays.copyOf(doc.spanNames, numOfSpans);
+			doc.spanIds = Arrays.copyOf(doc.spanIds, numOfSpans);
+			doc.spanStarts = Arrays.copyOf(doc.spanStarts, numOfSpans);
+			doc.spanEnds = Arrays.copyOf(doc.spanEnds, numOfSpans);
+			doc.spanAnnotations = Arrays.copyOf(doc.spanAnnotations, numOfSpans);
+			if (numOfSpans == 0) {
+				return;
+			}
+			doc.spanViews = new SpanView[numOfSpans];
+			final int[] offsets = new int[doc.numOfTokens + 1];
+			for (int spanIndex = 0; spanIndex < numOfSpans; spanIndex++) {
+				for (int tokenIndex = doc.spanStarts[spanIndex]; tokenIndex < doc.spanEnds[spanIndex]; tokenIndex++) {
+					offsets[tokenIndex + 1]++;
+				}
+			}
+			for (int tokenIndex = 0; tokenIndex < doc.numOfTokens; tokenIndex++) {
+				offsets[tokenIndex + 1] += offsets[tokenIndex];
+			}
+			final int[] spanRefs = new int[numOfSpanRefs];
+			final int[] fill = Arrays.copyOf(offsets, doc.numOfTokens);
+			for (int spanIndex = numOfSpans - 1; spanIndex >= 0; spanIndex--) {
+				for (int tokenIndex = doc.spanStarts[spanIndex]; tokenIndex < doc.spanEnds[spanIndex]; tokenIndex++) {
+					spanRefs[fill[tokenIndex]++] = spanIndex;
+				}
+			}
+			doc.tokenSpanOffsets = offsets;
+			doc.spanRefs = spanRefs;
+		}
+
+		private static int[] grow(int[] array, int capacity) {
+			final int[] grown = Arrays.copyOf(array, capacity);
+			Arrays.fill(grown, array.length, capacity, ABSENT);
+			return grown;
+		}
+	}
+}
@@ -19,6 +19,7 @@ package org.corpus_tools.peppermodules.treetagger.model.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.corpus_tools.peppermodules.treetagger.model.Document;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
@@ -48,35 +49,19 @@ public class DocumentImpl extends AnnotatableElementImpl implements Document {
 		return tokens;
 	}
 
+	/**
+	 * Returns whether the object is a document with the same name, annotations
+	 * and structurally equal tokens.
+	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result = prime * result + ((name == null) ? 0 : name.hashCode());
-		result = prime * result + ((tokens == null) ? 0 : tokens.hashCode());
-		return result;
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (!super.equals(obj))
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		DocumentImpl other = (DocumentImpl) obj;
-		if (name == null) {
-			if (other.name != null)
-				return false;
-		} else if (!name.equals(other.name))
-			return false;
-		if (tokens == null) {
-			if (other.tokens != null)
-				return false;
-		} else if (!tokens.equals(other.tokens))
+	public boolean structurallyEquals(Object obj) {
+		if (!(obj instanceof Document)) {
 			return false;
-		return true;
+		}
+		final Document other = (Document) obj;
+		return Objects.equals(name, other.getName())
+				&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations())
+				&& tokensStructurallyEqual(getTokens(), other.getTokens());
 	}
 
 	@Override
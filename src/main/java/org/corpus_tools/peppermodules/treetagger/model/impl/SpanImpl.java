@@ -19,6 +19,7 @@ package org.corpus_tools.peppermodules.treetagger.model.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
@@ -26,6 +27,7 @@ import org.corpus_tools.peppermodules.treetagger.model.Token;
 public class SpanImpl extends AnnotatableElementImpl implements Span {
 	protected String name = null;
 	protected List<Token> tokens = new ArrayList<>();
+	protected int id = -1;
 
 	protected SpanImpl() {
 		super();
@@ -47,34 +49,28 @@ public class SpanImpl extends AnnotatableElementImpl implements Span {
 	}
 
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result = prime * result + ((name == null) ? 0 : name.hashCode());
-		result = prime * result + ((tokens == null) ? 0 : tokens.hashCode());
-		return result;
+	public int getId() {
+		return id;
 	}
 
 	@Override
-	public boolean equals(Object obj) {
-		if (this == obj)
-			return true;
-		if (!super.equals(obj))
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		SpanImpl other = (SpanImpl) obj;
-		if (name == null) {
-			if (other.name != null)
-				return false;
-		} else if (!name.equals(other.name))
-			return false;
-		if (tokens == null) {
-			if (other.tokens != null)
-				return false;
-		} else if (!tokens.equals(other.tokens))
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns whether the object is a span with the same name, annotations and
+	 * structurally equal tokens.
+	 */
+	@Override
+	public boolean structurallyEquals(Object obj) {
+		if (!(obj instanceof Span)) {
 			return false;
-		return true;
+		}
+		final Span other = (Span) obj;
+		return Objects.equals(name, other.getName())
+				&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations())
+				&& tokensStructurallyEqual(getTokens(), other.getTokens());
 	}
 
 } // SpanImpl
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalises strings, so that equal annotation names and values share a
+ * single instance. Tag sets and column names are small, but lemmas are an open
+ * class, therefore the pool stops taking new strings as soon as it holds its
+ * maximal number of strings. Strings already contained are still
+ * canonicalised.
+ *
+ * A pool can be shared between threads, in which case the bound may be
+ * exceeded by the number of threads adding strings at the same time.
+ */
+public class StringPool {
+	/** the maximal number of strings of a pool created by default */
+	public static final int DEFAULT_MAX_SIZE = 100000;
+
+	private final ConcurrentHashMap<String, String> strings;
+	private final int maxSize;
+
+	public StringPool() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public StringPool(int maxSize) {
+		this.maxSize = maxSize;
+		strings = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+	}
+
+	/**
+	 * Returns the pooled string equal to the given one. If there is none, the
+	 * given string is pooled, unless the pool is full.
+	 */
+	public String intern(String string) {
+		if (string == null) {
+			return null;
+		}
+		final String pooled = strings.get(string);
+		if (pooled != null) {
+			return pooled;
+		}
+		if (strings.size() >= maxSize) {
+			return string;
+		}
+		final String previous = strings.putIfAbsent(string, string);
+		return previous == null ? string : previous;
+	}
+
+	/** Returns the number of pooled strings. */
+	public int size() {
+		return strings.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+}
@@ -17,9 +17,10 @@
  */
 package org.corpus_tools.peppermodules.treetagger.model.impl;
 
-import com.google.common.base.Objects;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
@@ -32,13 +33,93 @@ public class TokenImpl extends AnnotatableElementImpl implements Token {
 
 	protected String text = null;
 	protected long line = -1l;
+	protected int id = -1;
 
 	protected List<Span> spans = new ArrayList<>();
 	protected Document document = null;
-
+	/**
+	 * The last {@link POSAnnotation} and {@link LemmaAnnotation} of the
+	 * annotations, which are only valid if {@link #slotsAreValid} is true.
+	 */
+	private POSAnnotation posAnnotation = null;
+	private LemmaAnnotation lemmaAnnotation = null;
+	private boolean slotsAreValid = true;
 
 	protected TokenImpl() {
-		super();
+		super(null);
+		annotations = new AnnotationList();
+	}
+
+	/**
+	 * The annotations of the token, which keep the POS and lemma slots up to
+	 * date. Appending an annotation updates the slots directly, any other
+	 * change of a POS or lemma annotation lets them be searched again on the
+	 * next access.
+	 */
+	private class AnnotationList extends AbstractList<Annotation> {
+		private final ArrayList<Annotation> elements = new ArrayList<>();
+
+		@Override
+		public Annotation get(int index) {
+			return elements.get(index);
+		}
+
+		@Override
+		public int size() {
+			return elements.size();
+		}
+
+		@Override
+		public void add(int index, Annotation annotation) {
+			elements.add(index, annotation);
+			modCount++;
+			if (index == elements.size() - 1) {
+				if (annotation instanceof POSAnnotation) {
+					posAnnotation = (POSAnnotation) annotation;
+				} else if (annotation instanceof LemmaAnnotation) {
+					lemmaAnnotation = (LemmaAnnotation) annotation;
+				}
+			} else {
+				invalidateSlots(annotation);
+			}
+		}
+
+		@Override
+		public Annotation set(int index, Annotation annotation) {
+			final Annotation oldAnnotation = elements.set(index, annotation);
+			invalidateSlots(oldAnnotation);
+			invalidateSlots(annotation);
+			return oldAnnotation;
+		}
+
+		@Override
+		public Annotation remove(int index) {
+			final Annotation oldAnnotation = elements.remove(index);
+			modCount++;
+			invalidateSlots(oldAnnotation);
+			return oldAnnotation;
+		}
+
+		private void invalidateSlots(Annotation annotation) {
+			if (annotation instanceof POSAnnotation || annotation instanceof LemmaAnnotation) {
+				slotsAreValid = false;
+			}
+		}
+	}
+
+	private void validateSlots() {
+		if (!slotsAreValid) {
+			posAnnotation = null;
+			lemmaAnnotation = null;
+			for (Annotation anno : this.getAnnotations()) {
+				if (anno instanceof POSAnnotation) {
+					posAnnotation = (POSAnnotation) anno;
+				} else if (anno instanceof LemmaAnnotation) {
+					lemmaAnnotation = (LemmaAnnotation) anno;
+				}
+			}
+			slotsAreValid = true;
+		}
 	}
 
 	@Override
@@ -60,15 +141,21 @@ public class TokenImpl extends AnnotatableElementImpl implements Token {
 	public void setLine(long line) {
 		this.line = line;
 	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(int id) {
+		this.id = id;
+	}
 	
 	@Override
 	public POSAnnotation getPosAnnotation() {
-		POSAnnotation posAnno = null;
-		for (Annotation anno : this.getAnnotations()) {
-			if (anno instanceof POSAnnotation)
-				posAnno = (POSAnnotation) anno;
-		}
-		return (posAnno);
+		validateSlots();
+		return (posAnnotation);
 	}
 
 	@Override
@@ -78,12 +165,8 @@ public class TokenImpl extends AnnotatableElementImpl implements Token {
 
 	@Override
 	public LemmaAnnotation getLemmaAnnotation() {
-		LemmaAnnotation lemmaAnno = null;
-		for (Annotation anno : this.getAnnotations()) {
-			if (anno instanceof LemmaAnnotation)
-				lemmaAnno = (LemmaAnnotation) anno;
-		}
-		return (lemmaAnno);
+		validateSlots();
+		return (lemmaAnnotation);
 	}
 
 	@Override
@@ -106,23 +189,18 @@ public class TokenImpl extends AnnotatableElementImpl implements Token {
 		return spans;
 	}
 
+	/**
+	 * Returns whether the object is a token with the same line, text and
+	 * annotations, its spans and document are not compared.
+	 */
 	@Override
-	public int hashCode() {
-		return Objects.hashCode(this.line, this.text, super.hashCode());
-	}
-
-	@Override
-	public boolean equals(Object obj) {
-		
-		if(obj == null) return false;
-		if(getClass() != obj.getClass()) return false;
-		if(!super.equals(obj)) return false;
-		
-		final TokenImpl other = (TokenImpl) obj;
-		
-		
-		return Objects.equal(this.line, other.line)
-			&& Objects.equal(this.text, other.text);
+	public boolean structurallyEquals(Object obj) {
+		if (!(obj instanceof Token)) {
+			return false;
+		}
+		final Token other = (Token) obj;
+		return line == other.getLine() && Objects.equals(text, other.getText())
+				&& annotationsStructurallyEqual(getAnnotations(), other.getAnnotations());
 	}
 
 	@Override
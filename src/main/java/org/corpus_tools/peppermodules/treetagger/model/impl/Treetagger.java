@@ -17,8 +17,11 @@
  */
 package org.corpus_tools.peppermodules.treetagger.model.impl;
 
+import java.util.List;
+
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
 import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
 import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.Deserializer;
@@ -38,6 +41,59 @@ public class Treetagger {
 		return new Deserializer.Builder();
 	}
 
+	/**
+	 * Makes sure, that the id of each token is its position in the list and
+	 * that the spans of the tokens have distinct ids, so that they can be used
+	 * as array indexes. Ids assigned by the {@link Deserializer} are kept,
+	 * otherwise, e.g. for documents created manually, all ids are assigned
+	 * again.
+	 *
+	 * @return the number of span ids, which is greater than the largest id of
+	 *         a span
+	 */
+	public static int ensureIds(List<Token> tokens) {
+		int numOfSpanReferences = 0;
+		for (Token token : tokens) {
+			numOfSpanReferences += token.getSpans().size();
+		}
+		final Span[] spansById = new Span[tokens.size() + numOfSpanReferences];
+		int numOfSpanIds = 0;
+		boolean idsAreValid = true;
+		for (int tokenIndex = 0; tokenIndex < tokens.size() && idsAreValid; tokenIndex++) {
+			final Token token = tokens.get(tokenIndex);
+			idsAreValid = token.getId() == tokenIndex;
+			for (int i = 0; i < token.getSpans().size() && idsAreValid; i++) {
+				final Span span = token.getSpans().get(i);
+				final int id = span.getId();
+				if (id < 0 || id >= spansById.length || (spansById[id] != null && spansById[id] != span)) {
+					idsAreValid = false;
+				} else {
+					spansById[id] = span;
+					numOfSpanIds = Math.max(numOfSpanIds, id + 1);
+				}
+			}
+		}
+		if (idsAreValid) {
+			return numOfSpanIds;
+		}
+		for (Token token : tokens) {
+			for (Span span : token.getSpans()) {
+				span.setId(-1);
+			}
+		}
+		numOfSpanIds = 0;
+		for (int tokenIndex = 0; tokenIndex < tokens.size(); tokenIndex++) {
+			final Token token = tokens.get(tokenIndex);
+			token.setId(tokenIndex);
+			for (Span span : token.getSpans()) {
+				if (span.getId() < 0) {
+					span.setId(numOfSpanIds++);
+				}
+			}
+		}
+		return numOfSpanIds;
+	}
+
 	public static class DocumentBuilder {
 		private final Document document = TreetaggerFactory.eINSTANCE.createDocument();
 
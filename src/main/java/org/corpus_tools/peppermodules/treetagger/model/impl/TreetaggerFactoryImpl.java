@@ -74,6 +74,11 @@ public class TreetaggerFactoryImpl implements TreetaggerFactory {
 		return anno;
 	}
 
+	@Override
+	public Annotation createAnnotation(String name, String value, StringPool pool) {
+		return createAnnotation(pool.intern(name), pool.intern(value));
+	}
+
 	@Override
 	public POSAnnotation createPOSAnnotation() {
 		POSAnnotationImpl posAnnotation = new POSAnnotationImpl();
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the start and end tags to be written before each token of a
+ * document, while the tokens are written one after the other.
+ *
+ * A span is opened before the first token of each run of consecutive tokens
+ * containing it and closed before the first token behind the run or at the
+ * end of the document. Spans are closed in the reverse order they were
+ * opened. Spans opened before the same token are ordered by their number of
+ * tokens, the larger first, then by their names and at last in the reverse
+ * order of the spans of the token.
+ *
+ * @param <S>
+ *            the type of the spans, which are compared by identity
+ */
+public class SpanEvents<S> {
+	private static final Logger logger = LoggerFactory.getLogger(SpanEvents.class);
+
+	/** the state of a span while the tokens are passed */
+	private static class SpanState {
+		/** index of the last token containing the span */
+		int lastTokenIndex = -2;
+		/** position of the span in the opening order, -1 if it is closed */
+		int openingIndex = -1;
+		/** whether the span was already found to be closed */
+		boolean closing = false;
+	}
+
+	private final Function<? super S, String> names;
+	private final Comparator<S> bySizeAndName;
+
+	private final Map<S, SpanState> states = new IdentityHashMap<>();
+	private final Map<String, Integer> numOfOpenSpansByName = new HashMap<>();
+	private final List<S> closingSpans = new ArrayList<>();
+	private final List<S> openingSpans = new ArrayList<>();
+	private List<S> previousSpans = Collections.emptyList();
+	private int tokenIndex = -1;
+	private int numOfOpenedSpans = 0;
+
+	/**
+	 * @param names
+	 *            returns the name of a span
+	 * @param sizes
+	 *            returns the number of tokens of a span
+	 */
+	public SpanEvents(final Function<? super S, String> names, final ToIntFunction<? super S> sizes) {
+		this.names = names;
+		this.bySizeAndName = new Comparator<S>() {
+			@Override
+			public int compare(S span1, S span2) {
+				final int sizeDifference = sizes.applyAsInt(span2) - sizes.applyAsInt(span1);
+				return sizeDifference != 0 ? sizeDifference : names.apply(span1).compareTo(names.apply(span2));
+			}
+		};
+	}
+
+	/**
+	 * Creates the events of the {@link Span}s of a treetagger document.
+	 */
+	public static SpanEvents<Span> forSpans() {
+		return new SpanEvents<Span>(Span::getName, span -> span.getTokens().size());
+	}
+
+	/**
+	 * Computes the events before the next token. A warning is logged whenever
+	 * several spans with the same name are open at the same time.
+	 *
+	 * @param spans
+	 *            the spans of the next token, which must not be changed until
+	 *            the events of the following token are computed
+	 */
+	public void next(List<S> spans) {
+		tokenIndex++;
+		openingSpans.clear();
+		for (int spanIndex = spans.size() - 1; spanIndex >= 0; spanIndex--) {
+			final S span = spans.get(spanIndex);
+			SpanState state = states.get(span);
+			if (state == null) {
+				state = new SpanState();
+				states.put(span, state);
+			}
+			if (state.lastTokenIndex < tokenIndex - 1) {
+				openingSpans.add(span);
+			}
+			state.lastTokenIndex = tokenIndex;
+		}
+
+		closingSpans.clear();
+		for (S span : previousSpans) {
+			final SpanState state = states.get(span);
+			if (state.lastTokenIndex != tokenIndex && state.openingIndex >= 0 && !state.closing) {
+				state.closing = true;
+				closingSpans.add(span);
+			}
+		}
+		if (closingSpans.size() > 1) {
+			Collections.sort(closingSpans, new Comparator<S>() {
+				@Override
+				public int compare(S span1, S span2) {
+					return states.get(span2).openingIndex - states.get(span1).openingIndex;
+				}
+			});
+		}
+		for (S span : closingSpans) {
+			final SpanState state = states.get(span);
+			state.openingIndex = -1;
+			state.closing = false;
+			final String name = names.apply(span);
+			final Integer numOfOpenSpans = numOfOpenSpansByName.get(name);
+			if (numOfOpenSpans == 1) {
+				numOfOpenSpansByName.remove(name);
+			} else {
+				numOfOpenSpansByName.put(name, numOfOpenSpans - 1);
+			}
+		}
+
+		// a stable sort keeps the reverse order of the token's spans
+		Collections.sort(openingSpans, bySizeAndName);
+		for (int spanIndex = 0; spanIndex < openingSpans.size(); spanIndex++) {
+			final S span = openingSpans.get(spanIndex);
+			states.get(span).openingIndex = numOfOpenedSpans++;
+			final String name = names.apply(span);
+			final Integer numOfOpenSpans = numOfOpenSpansByName.get(name);
+			numOfOpenSpansByName.put(name, numOfOpenSpans == null ? 1 : numOfOpenSpans + 1);
+			final boolean lastOfGroup = spanIndex + 1 == openingSpans.size()
+					|| bySizeAndName.compare(span, openingSpans.get(spanIndex + 1)) != 0;
+			if (lastOfGroup && numOfOpenSpansByName.get(name) > 1) {
+				logger.warn("There are " + numOfOpenSpansByName.get(name) + " spans named " + name
+						+ " open at the same time!");
+			}
+		}
+		previousSpans = spans;
+	}
+
+	/**
+	 * Computes the events behind the last token, which closes all spans still
+	 * open.
+	 */
+	public void end() {
+		next(Collections.<S> emptyList());
+	}
+
+	/**
+	 * Returns the spans to be closed before the current token.
+	 */
+	public List<S> getClosingSpans() {
+		return closingSpans;
+	}
+
+	/**
+	 * Returns the spans to be opened before the current token.
+	 */
+	public List<S> getOpeningSpans() {
+		return openingSpans;
+	}
+}
@@ -179,95 +179,24 @@ public class TabWriter {
 				}
 				fileWriter.write(">\n");
 			}
-			ArrayList<Span> spanList = new ArrayList<Span>();
-			HashMap<String, Integer> spanNamesCounts = new HashMap<String, Integer>();
+			final SpanEvents<Span> spanEvents = SpanEvents.forSpans();
 
 			for (Integer tokenIndex = 0; tokenIndex < document.getTokens().size(); tokenIndex++) {
 				Token token = document.getTokens().get(tokenIndex);
+				spanEvents.next(token.getSpans());
 
 				// write end tags
-				for (int spanIndex = spanList.size() - 1; spanIndex >= 0; spanIndex--) {
-					Span span = spanList.get(spanIndex);
-					if (!token.getSpans().contains(span)) {
-						String spanName = span.getName();
-						fileWriter.write("</" + spanName + ">\n");
-						spanList.remove(span);
-						Integer spanNameCount = spanNamesCounts.get(spanName);
-						if (spanNameCount == 1) {
-							spanNamesCounts.remove(spanName);
-						} else {
-							spanNamesCounts.put(spanName, spanNameCount - 1);
-						}
-					}
+				for (Span span : spanEvents.getClosingSpans()) {
+					fileWriter.write("</" + span.getName() + ">\n");
 				}
 
-				// calculate order for new opening tags by number of
-				// tokens contained in spans ("size" of span)
-				// if new opening spans have different sizes, the bigger
-				// ones must open before the smaller
-
-				// for each occuring span size, a key is put into this
-				// map, mapping to a list of spans with this size
-				HashMap<Integer, ArrayList<Span>> size2SpanlistMap = new HashMap<Integer, ArrayList<Span>>();
-				// this list is used to have all occuring sizes sortable
-				// without much converting of the maps keySet
-				ArrayList<Integer> sizeList = new ArrayList<Integer>();
-				for (int spanIndex = token.getSpans().size() - 1; spanIndex >= 0; spanIndex--) {
-					Span span = token.getSpans().get(spanIndex);
-					Integer spanSize = span.getTokens().size();
-					if (!spanList.contains(span)) {
-						if (!size2SpanlistMap.containsKey(spanSize)) {
-							size2SpanlistMap.put(spanSize, new ArrayList<Span>());
-							sizeList.add(spanSize);
-						}
-						size2SpanlistMap.get(spanSize).add(span);
-					}
-				}
-				Collections.sort(sizeList);
-				Collections.reverse(sizeList);
-				// write opening tags in xml conform order
-				for (int sizeIndex = 0; sizeIndex < sizeList.size(); sizeIndex++) {
-					int size = sizeList.get(sizeIndex);
-
-					ArrayList<String> currentSpannames = new ArrayList<String>();
-					HashMap<String, ArrayList<Span>> currentSpanMap = new HashMap<String, ArrayList<Span>>();
-					{
-						ArrayList<Span> currentSpanlist = size2SpanlistMap.get(size);
-						for (int spanIndex = 0; spanIndex < currentSpanlist.size(); spanIndex++) {
-							Span span = currentSpanlist.get(spanIndex);
-							String spanName = span.getName();
-							if (!currentSpanMap.containsKey(spanName)) {
-								currentSpannames.add(spanName);
-								currentSpanMap.put(spanName, new ArrayList<Span>());
-							}
-							currentSpanMap.get(spanName).add(span);
-						}
-					}
-					Collections.sort(currentSpannames);
-
-					for (int spanNameIndex = 0; spanNameIndex < currentSpannames.size(); spanNameIndex++) {
-						String spansName = currentSpannames.get(spanNameIndex);
-						ArrayList<Span> currentSpanlist = currentSpanMap.get(spansName);
-
-						if (!spanNamesCounts.containsKey(spansName)) {
-							spanNamesCounts.put(spansName, currentSpanlist.size());
-						} else {
-							spanNamesCounts.put(spansName, spanNamesCounts.get(spansName) + currentSpanlist.size());
-						}
-						if (spanNamesCounts.get(spansName) > 1) {
-							logger.warn("There are " + spanNamesCounts.get(spansName) + " spans named " + spansName
-									+ " open at the same time!");
-						}
-						for (int spanIndex = 0; spanIndex < currentSpanlist.size(); spanIndex++) {
-							Span span = currentSpanlist.get(spanIndex);
-							spanList.add(span);
-							fileWriter.write("<" + span.getName());
-							for (Annotation anno : span.getAnnotations()) {
-								fileWriter.write(" " + anno.getName() + "=\"" + anno.getValue() + "\"");
-							}
-							fileWriter.write(">\n");
-						}
+				// write opening tags, bigger spans before smaller ones
+				for (Span span : spanEvents.getOpeningSpans()) {
+					fileWriter.write("<" + span.getName());
+					for (Annotation anno : span.getAnnotations()) {
+						fileWriter.write(" " + anno.getName() + "=\"" + anno.getValue() + "\"");
 					}
+					fileWriter.write(">\n");
 				}
 
 				// write token data
@@ -305,10 +234,9 @@ public class TabWriter {
 			}
 
 			// write final end tags
-			for (int spanIndex = spanList.size() - 1; spanIndex >= 0; spanIndex--) {
-				Span span = spanList.get(spanIndex);
+			spanEvents.end();
+			for (Span span : spanEvents.getClosingSpans()) {
 				fileWriter.write("</" + span.getName() + ">\n");
-				spanList.remove(span);
 			}
 
 			if (documentHasMetaAnnotations(document)) {
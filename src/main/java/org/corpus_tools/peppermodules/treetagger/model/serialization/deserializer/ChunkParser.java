@@ -0,0 +1,214 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
+
+/**
+ * Parses a chunk of a memory-mapped TreeTagger file, which starts at the
+ * beginning of a line and ends behind a line feed or at the end of the file.
+ * Token lines are turned into tokens and tag lines are classified, but no
+ * document or span is created, since their boundaries may lie in other chunks.
+ * This is left to the {@link Deserializer}, which maps the chunks in order.
+ *
+ * Lines are separated like by {@link java.io.BufferedReader#readLine()} and
+ * numbered relative to the beginning of the chunk.
+ */
+class ChunkParser extends RecursiveAction {
+	private static final long serialVersionUID = 6125315407307011530L;
+
+	/**
+	 * A start tag, end tag or processing instruction.
+	 */
+	static class TagLine {
+		final LineScanner.LineType type;
+		final String name;
+		final Map<String, String> attributes;
+
+		TagLine(LineScanner.LineType type, String name, Map<String, String> attributes) {
+			this.type = type;
+			this.name = name;
+			this.attributes = attributes;
+		}
+	}
+
+	private final FileChannel channel;
+	private final long start;
+	private final long end;
+	private final Charset charset;
+	private final List<String> columnNames;
+	private final StringPool stringPool;
+
+	/** the tokens and {@link TagLine}s of all non-blank lines */
+	private final List<Object> lines = new ArrayList<>();
+	private final IntList lineIndexes = new IntList();
+	/** the number of columns of each line, 0 for tag lines */
+	private final IntList numsOfColumns = new IntList();
+	private int numOfLines = 0;
+
+	ChunkParser(FileChannel channel, long start, long end, Charset charset, List<String> columnNames,
+			StringPool stringPool) {
+		this.channel = channel;
+		this.start = start;
+		this.end = end;
+		this.charset = charset;
+		this.columnNames = columnNames;
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Returns whether a file in the given encoding can be split at line feed
+	 * bytes. This holds for UTF-8 and single byte encodings based on ASCII.
+	 */
+	static boolean canSplit(Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return true;
+		}
+		return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1
+				&& Arrays.equals("\n".getBytes(charset), new byte[] { '\n' });
+	}
+
+	/**
+	 * Splits the file into chunks of about the given size, which end behind a
+	 * line feed.
+	 *
+	 * @return the start offsets of all chunks followed by the size of the file
+	 */
+	static long[] findChunkBounds(FileChannel channel, int chunkSize) throws IOException {
+		final long size = channel.size();
+		long[] bounds = new long[(int) (size / chunkSize) + 2];
+		int numOfBounds = 1;
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long chunkStart = 0;
+		while (chunkStart < size) {
+			final long chunkEnd;
+			if (chunkStart + chunkSize >= size) {
+				chunkEnd = size;
+			} else {
+				chunkEnd = findLineEnd(channel, chunkStart + chunkSize - 1, buffer);
+			}
+			if (numOfBounds == bounds.length) {
+				bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+			}
+			bounds[numOfBounds++] = chunkEnd;
+			chunkStart = chunkEnd;
+		}
+		return Arrays.copyOf(bounds, numOfBounds);
+	}
+
+	/**
+	 * Returns the position behind the first line feed at or after the given
+	 * position or the size of the file, if there is none.
+	 */
+	private static long findLineEnd(FileChannel channel, long pos, ByteBuffer buffer) throws IOException {
+		int numOfBytes;
+		buffer.clear();
+		while ((numOfBytes = channel.read(buffer, pos)) > 0) {
+			for (int i = 0; i < numOfBytes; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += numOfBytes;
+			buffer.clear();
+		}
+		return channel.size();
+	}
+
+	@Override
+	protected void compute() {
+		final CharBuffer chars;
+		try {
+			final ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			chars = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE).decode(bytes);
+		} catch (IOException e) {
+			throw new PepperModuleException("Cannot read bytes " + start + " to " + end + " of treetagger file. ", e);
+		}
+		final char[] buffer = chars.array();
+		final int limit = chars.arrayOffset() + chars.limit();
+		final LineScanner lineScanner = new LineScanner();
+		final TokenLineParser tokenLineParser = new TokenLineParser(columnNames, stringPool);
+		int pos = chars.arrayOffset();
+		while (pos < limit) {
+			final int lineStart = pos;
+			while (pos < limit && buffer[pos] != '\n' && buffer[pos] != '\r') {
+				pos++;
+			}
+			parseLine(new String(buffer, lineStart, pos - lineStart), lineScanner, tokenLineParser);
+			numOfLines++;
+			if (pos < limit) {
+				pos += buffer[pos] == '\r' && pos + 1 < limit && buffer[pos + 1] == '\n' ? 2 : 1;
+			}
+		}
+	}
+
+	private void parseLine(String line, LineScanner lineScanner, TokenLineParser tokenLineParser) {
+		if (Deserializer.isBlank(line)) {
+			return;
+		}
+		final LineScanner.LineType lineType = lineScanner.scan(line);
+		if (lineType == LineScanner.LineType.TOKEN) {
+			final int numOfColumns = tokenLineParser.splitColumns(line);
+			lines.add(tokenLineParser.createToken(line, numOfLines, numOfColumns));
+			numsOfColumns.add(numOfColumns);
+		} else {
+			lines.add(new TagLine(lineType, lineScanner.getTagName(), lineScanner.getAttributes()));
+			numsOfColumns.add(0);
+		}
+		lineIndexes.add(numOfLines);
+	}
+
+	/** Returns the number of non-blank lines. */
+	int size() {
+		return lines.size();
+	}
+
+	/** Returns the token or {@link TagLine} of the i-th non-blank line. */
+	Object getLine(int i) {
+		return lines.get(i);
+	}
+
+	/** Returns the index of the i-th non-blank line within the chunk. */
+	int getLineIndex(int i) {
+		return lineIndexes.get(i);
+	}
+
+	int getNumOfColumns(int i) {
+		return numsOfColumns.get(i);
+	}
+
+	/** Returns the number of all lines including blank ones. */
+	int getNumOfLines() {
+		return numOfLines;
+	}
+}
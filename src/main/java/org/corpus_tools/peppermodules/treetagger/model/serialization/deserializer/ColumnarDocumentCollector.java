@@ -0,0 +1,71 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.impl.ColumnarDocument;
+
+/**
+ * A {@link DocumentCollector} keeping the documents as
+ * {@link ColumnarDocument}s, the tokens passed by the {@link Deserializer} are
+ * dropped as soon as they are encoded.
+ */
+class ColumnarDocumentCollector extends DocumentCollector {
+	private ColumnarDocument.Builder builder = null;
+
+	@Override
+	public void startDocument(Document document) {
+		builder = new ColumnarDocument.Builder();
+	}
+
+	@Override
+	public void startSpan(Span span) {
+		builder.startSpan(span);
+	}
+
+	@Override
+	public void token(Token token, List<Span> openSpans) {
+		builder.addToken(token, openSpans);
+	}
+
+	@Override
+	public void endSpan(Span span) {
+		builder.endSpan(span);
+	}
+
+	@Override
+	public void discardSpan(Span span) {
+		builder.discardSpan(span);
+	}
+
+	@Override
+	public void endDocument(Document document) {
+		super.endDocument(builder.build(document));
+		builder = null;
+	}
+
+	@Override
+	public void discardDocument(Document document) {
+		super.discardDocument(document);
+		builder = null;
+	}
+}
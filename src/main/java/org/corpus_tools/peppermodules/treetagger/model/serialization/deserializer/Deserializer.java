@@ -21,11 +21,17 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
 import org.corpus_tools.peppermodules.treetagger.model.AnnotatableElement;
@@ -34,11 +40,17 @@ import org.corpus_tools.peppermodules.treetagger.model.Document;
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
 import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
-import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
+import org.corpus_tools.peppermodules.treetagger.model.impl.ColumnarDocument;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
 import org.eclipse.emf.common.util.URI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reads a TreeTagger file line by line and passes its content as events to a
+ * {@link DeserializerListener}. When no listener is given, the content is
+ * collected into a list of {@link Document}s.
+ */
 public class Deserializer {
 	public static final String DEFAULT_ANNOTATION_NAME = "anyAnno";
 	public static final String COLUMN_SEPARATOR = "\t";
@@ -46,19 +58,42 @@ public class Deserializer {
 	public static final String COLUMN_POS = "pos";
 	public static final String COLUMN_LEMMA = "lemma";
 
+	static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
 	private static final Logger logger = LoggerFactory.getLogger(Deserializer.class);
 	private static final Character utf8BOM = new Character((char) 0xFEFF);
 	private String fileEncoding = "UTF-8";
 	private String metaTagName = "meta";
 	private URI location = null;
-	private List<Document> documents = new ArrayList<>();
+	private int parallelism = 1;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private DeserializerListener listener = null;
+	private final LineScanner lineScanner = new LineScanner();
 	private Document currentDocument = null;
 	private List<Span> openSpans = new ArrayList<>();
+	private final List<Span> openSpansView = Collections.unmodifiableList(openSpans);
+	/**
+	 * Spans are inserted at the head of {@link #openSpans}, so the spans opened
+	 * since the last token are the first ones in this list and do not contain
+	 * any token yet.
+	 */
+	private int numOfOpenSpansWithoutTokens = 0;
 	int lineNumber = 0;
 	private boolean documentTagIsOpen = false;
-	List<Integer> rowsWithTooMuchColumns = new ArrayList<>();
-	List<Integer> rowsWithTooLessColumns = new ArrayList<>();
+	private int numOfFinishedDocuments = 0;
+	/**
+	 * Ids of the next token and span of the current document. Ids of discarded
+	 * spans are not reused, so span ids may have gaps.
+	 */
+	private int nextTokenId = 0;
+	private int nextSpanId = 0;
+	IntList rowsWithTooMuchColumns = new IntList();
+	IntList rowsWithTooLessColumns = new IntList();
 	List<String> columnNames = new ArrayList<>();
+	/** Pool of annotation names and values and of span names. */
+	private StringPool stringPool = new StringPool();
+	private TokenLineParser tokenLineParser = new TokenLineParser(columnNames, stringPool);
+	private boolean columnarDocuments = false;
 
 	Deserializer() {
 		setDefaultColumnNames();
@@ -81,39 +116,222 @@ public class Deserializer {
 		if (this.columnNames == null) {
 			this.columnNames = new ArrayList<>();
 		}
+		tokenLineParser = new TokenLineParser(this.columnNames, stringPool);
+	}
+
+	/**
+	 * Sets the number of threads parsing the file. With more than one thread,
+	 * the file is memory-mapped and split into chunks, which are parsed in
+	 * parallel. This requires an encoding in which a line feed is always the
+	 * single byte 0x0A, for any other encoding the file is read sequentially.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the pool the names and values of annotations and the names of spans
+	 * are taken from. A pool shared by all deserializers of an import keeps a
+	 * single instance of each tag, lemma and column name for the whole corpus.
+	 */
+	public void setStringPool(StringPool stringPool) {
+		this.stringPool = stringPool == null ? new StringPool() : stringPool;
+		tokenLineParser = new TokenLineParser(columnNames, this.stringPool);
+	}
+
+	/**
+	 * If true, the documents returned are {@link ColumnarDocument}s.
+	 */
+	public void setColumnarDocuments(boolean columnarDocuments) {
+		this.columnarDocuments = columnarDocuments;
+	}
+
+	void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
 	}
 
 	public void setLocation(URI location) {
 		this.location = location;
 	}
 
+	/**
+	 * Reads the file and returns all documents contained in it. The documents
+	 * are named after the file, if there is more than one document, a running
+	 * number is appended.
+	 */
 	public List<Document> deserialize() {
+		final DocumentCollector collector = createCollector();
+		deserialize(collector);
+		setAllDocumentNames(collector.getDocuments());
+		return collector.getDocuments();
+	}
+
+	/**
+	 * Reads the file and passes its content to the given listener without
+	 * keeping any of it.
+	 */
+	public void deserialize(DeserializerListener listener) {
+		if (listener == null) {
+			throw new PepperModuleException("Cannot load any resource, because no listener is given.");
+		}
 		if (location == null) {
 			throw new PepperModuleException("Cannot load any resource, because no uri is given.");
 		}
-		try (BufferedReader fileReader = new BufferedReader(
-				new InputStreamReader(new FileInputStream(location.toFileString()), fileEncoding));) {
-			String line = null;
-			lineNumber = 1;
-			while ((line = fileReader.readLine()) != null) {
-				mapLine(line, lineNumber);
-				lineNumber++;
+		final Charset charset = getCharset();
+		this.listener = listener;
+		numOfFinishedDocuments = 0;
+		try {
+			if (parallelism > 1 && ChunkParser.canSplit(charset)) {
+				readChunksInParallel(charset);
+			} else {
+				readLines(charset, 0, 1, false);
 			}
 			endDocument();
 		} catch (IOException e) {
 			throw new PepperModuleException("Cannot read treetagger file '" + location + "'. ", e);
+		} finally {
+			this.listener = null;
+		}
+		logColumnWarnings();
+	}
+
+	/**
+	 * Reads only the document with the given index of the file the index
+	 * belongs to, starting at the byte offset of the document. The document is
+	 * named like by {@link #deserialize()}.
+	 */
+	public Document deserializeDocument(DocumentIndex index, int documentIndex) {
+		final DocumentIndex.DocumentEntry entry = index.get(documentIndex);
+		setLocation(index.getLocation());
+		final Charset charset = getCharset();
+		final DocumentCollector collector = createCollector();
+		this.listener = collector;
+		numOfFinishedDocuments = 0;
+		try {
+			readLines(charset, entry.getOffset(), entry.getLineNumber(), true);
+			if (numOfFinishedDocuments == 0) {
+				endDocument();
+			}
+		} catch (IOException e) {
+			throw new PepperModuleException("Cannot read treetagger file '" + location + "'. ", e);
+		} finally {
+			this.listener = null;
+		}
+		logColumnWarnings();
+		if (collector.getDocuments().isEmpty()) {
+			throw new PepperModuleException("Cannot read document " + (documentIndex + 1) + " of treetagger file '"
+					+ location + "', because the document index is out of date. ");
+		}
+		final Document document = collector.getDocuments().get(0);
+		String documentName = extractDocumentName(location);
+		if (index.size() > 1) {
+			documentName = documentName + "_" + (documentIndex + 1);
 		}
-		setAllDocumentNames();
-		if (rowsWithTooLessColumns.size() > 0) {
+		document.setName(documentName);
+		return document;
+	}
+
+	private DocumentCollector createCollector() {
+		return columnarDocuments ? new ColumnarDocumentCollector() : new DocumentCollector();
+	}
+
+	private Charset getCharset() {
+		try {
+			return Charset.forName(fileEncoding);
+		} catch (IllegalArgumentException e) {
+			throw new PepperModuleException("Cannot read treetagger file '" + location + "', because the encoding '"
+					+ fileEncoding + "' is not supported. ", e);
+		}
+	}
+
+	private void logColumnWarnings() {
+		if (!rowsWithTooLessColumns.isEmpty()) {
 			logger.warn(String.format("%s rows in input file had less data columns than expected! (Rows %s)",
 					rowsWithTooLessColumns.size(), rowsWithTooLessColumns.toString()));
 		}
-		if (rowsWithTooMuchColumns.size() > 0) {
+		if (!rowsWithTooMuchColumns.isEmpty()) {
 			logger.warn(String.format(
 					"%s rows in input file had more data columns than expected! Additional data was ignored! (Rows %s)",
 					rowsWithTooMuchColumns.size(), rowsWithTooMuchColumns.toString()));
 		}
-		return documents;
+	}
+
+	/**
+	 * Reads the file line by line starting at the given byte offset, which must
+	 * be the beginning of a line.
+	 *
+	 * @param onlyFirstDocument
+	 *            if true, reading stops as soon as a document is finished
+	 */
+	private void readLines(Charset charset, long offset, int firstLineNumber, boolean onlyFirstDocument)
+			throws IOException {
+		try (FileInputStream fileInput = new FileInputStream(location.toFileString());
+				BufferedReader fileReader = new BufferedReader(new InputStreamReader(fileInput, charset));) {
+			if (offset > 0) {
+				fileInput.getChannel().position(offset);
+			}
+			String line = null;
+			lineNumber = firstLineNumber;
+			while ((line = fileReader.readLine()) != null) {
+				mapLine(line, lineNumber);
+				lineNumber++;
+				if (onlyFirstDocument && numOfFinishedDocuments > 0) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Memory-maps the file and parses chunks of it in parallel, see
+	 * {@link ChunkParser}. The parsed chunks are mapped in order, which stitches
+	 * together documents and spans crossing chunk borders. At most two chunks
+	 * per thread are parsed ahead of the mapping to bound the memory.
+	 */
+	private void readChunksInParallel(Charset charset) throws IOException {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try (FileChannel channel = FileChannel.open(Paths.get(location.toFileString()), StandardOpenOption.READ)) {
+			final long[] chunkBounds = ChunkParser.findChunkBounds(channel, chunkSize);
+			final int numOfChunks = chunkBounds.length - 1;
+			final int numOfChunksAhead = 2 * parallelism;
+			final List<ChunkParser> chunks = new ArrayList<>(numOfChunks);
+			for (int chunkIndex = 0; chunkIndex < numOfChunks; chunkIndex++) {
+				chunks.add(new ChunkParser(channel, chunkBounds[chunkIndex], chunkBounds[chunkIndex + 1], charset,
+						columnNames, stringPool));
+			}
+			for (int chunkIndex = 0; chunkIndex < numOfChunks && chunkIndex < numOfChunksAhead; chunkIndex++) {
+				pool.execute(chunks.get(chunkIndex));
+			}
+			lineNumber = 1;
+			for (int chunkIndex = 0; chunkIndex < numOfChunks; chunkIndex++) {
+				final ChunkParser chunk = chunks.get(chunkIndex);
+				chunk.join();
+				chunks.set(chunkIndex, null);
+				if (chunkIndex + numOfChunksAhead < numOfChunks) {
+					pool.execute(chunks.get(chunkIndex + numOfChunksAhead));
+				}
+				mapChunk(chunk);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void mapChunk(ChunkParser chunk) {
+		final int firstLineNumber = lineNumber;
+		for (int i = 0; i < chunk.size(); i++) {
+			lineNumber = firstLineNumber + chunk.getLineIndex(i);
+			final Object line = chunk.getLine(i);
+			if (line instanceof Token) {
+				final Token token = (Token) line;
+				token.setLine(lineNumber);
+				mapToken(token, chunk.getNumOfColumns(i));
+			} else {
+				final ChunkParser.TagLine tag = (ChunkParser.TagLine) line;
+				mapTag(tag.type, tag.name, tag.attributes);
+			}
+		}
+		lineNumber = firstLineNumber + chunk.getNumOfLines();
 	}
 
 	private String extractDocumentName(URI location) {
@@ -128,37 +346,48 @@ public class Deserializer {
 	}
 
 	private void mapLine(String line, long lineNr) {
-		if (line.trim().length() == 0) {
+		if (isBlank(line)) {
 			return;
 		}
 		line = removeBOM(line);
-		if (XMLUtils.isProcessingInstructionTag(line)) {
+		final LineScanner.LineType lineType = lineScanner.scan(line);
+		if (lineType == LineScanner.LineType.TOKEN) {
+			final int numOfColumns = tokenLineParser.splitColumns(line);
+			mapToken(tokenLineParser.createToken(line, lineNr, numOfColumns), numOfColumns);
+		} else {
+			mapTag(lineType, lineScanner.getTagName(), lineScanner.getAttributes());
+		}
+	}
+
+	private void mapTag(LineScanner.LineType lineType, String tagName, Map<String, String> attributes) {
+		if (lineType == LineScanner.LineType.PROCESSING_INSTRUCTION) {
 			// do nothing; ignore processing instructions
-		} else if (XMLUtils.isStartTag(line)) {
-			final String startTagName = XMLUtils.extractTagName(line);
-			if (startTagName.equalsIgnoreCase(metaTagName)) {
-				beginDocument(line);
+		} else if (lineType == LineScanner.LineType.START_TAG) {
+			if (tagName.equalsIgnoreCase(metaTagName)) {
+				beginDocument(attributes);
 			} else {
-				beginSpan(startTagName, line);
+				beginSpan(tagName, attributes);
 			}
-		} else if (XMLUtils.isEndTag(line)) {
-			String endTagName = XMLUtils.extractTagName(line);
-			if (endTagName.equalsIgnoreCase(metaTagName)) {
+		} else if (lineType == LineScanner.LineType.END_TAG) {
+			if (tagName.equalsIgnoreCase(metaTagName)) {
 				documentTagIsOpen = false;
 				endDocument();
 			} else {
-				endSpan(endTagName);
+				endSpan(tagName);
 			}
-		} else {
-			if (currentDocument == null) {
-				beginDocument(null);
-			}
-			final Token token = createTokenFromLine(line, lineNr);
-			connectTokenWithOpenSpans(token);
-			currentDocument.getTokens().add(token);
 		}
 	}
 
+	private void mapToken(Token token, int numOfColumns) {
+		doesTupleHasExpectedNumOfColumns(numOfColumns);
+		if (currentDocument == null) {
+			beginDocument(null);
+		}
+		numOfOpenSpansWithoutTokens = 0;
+		token.setId(nextTokenId++);
+		listener.token(token, openSpansView);
+	}
+
 	private String removeBOM(String line) {
 		if ((lineNumber == 0) && (line.startsWith(utf8BOM.toString()))) {
 			line = line.substring(utf8BOM.toString().length());
@@ -167,7 +396,7 @@ public class Deserializer {
 		return line;
 	}
 
-	private void setAllDocumentNames() {
+	private void setAllDocumentNames(List<Document> documents) {
 		final String documentName = extractDocumentName(location);
 		if (documents.size() == 1) {
 			documents.get(0).setName(documentName);
@@ -180,15 +409,23 @@ public class Deserializer {
 		}
 	}
 
-	private void beginDocument(String startTag) {
+	/**
+	 * @param attributes
+	 *            the attributes of the meta tag or <code>null</code>, if the
+	 *            document begins implicitly
+	 */
+	private void beginDocument(Map<String, String> attributes) {
 		if (currentDocument != null) {
 			endDocument();
 		}
 		currentDocument = TreetaggerFactory.eINSTANCE.createDocument();
-		documentTagIsOpen = startTag != null;
+		nextTokenId = 0;
+		nextSpanId = 0;
+		documentTagIsOpen = attributes != null;
 		if (documentTagIsOpen) {
-			addAttributesAsAnnotations(startTag, currentDocument);
+			addAttributesAsAnnotations(attributes, currentDocument);
 		}
+		listener.startDocument(currentDocument);
 	}
 
 	private void endDocument() {
@@ -198,14 +435,7 @@ public class Deserializer {
 				for (int spanIndex = 0; spanIndex < openSpans.size(); spanIndex++) {
 					Span span = openSpans.get(spanIndex);
 					openSpanNames += ",</" + span.getName() + ">";
-					for (int tokenIndex = span.getTokens().size() - 1; tokenIndex >= 0; tokenIndex--) {
-						Token token = span.getTokens().get(tokenIndex);
-						if (token.getSpans().contains(span)) {
-							token.getSpans().remove(span);
-						} else {
-							break;
-						}
-					}
+					listener.discardSpan(span);
 				}
 				logger.warn(String.format("input file '%s' (line %d): missing end tag(s) '%s'. tag(s) will be ignored!",
 						location.lastSegment(), lineNumber, openSpanNames.substring(1)));
@@ -214,33 +444,43 @@ public class Deserializer {
 				logger.warn(
 						String.format("input file '%s' (line %d): missing document end tag. document will be ignored!",
 								location.lastSegment(), lineNumber));
+				listener.discardDocument(currentDocument);
 			} else {
-				documents.add(currentDocument);
+				listener.endDocument(currentDocument);
 			}
 
+			numOfFinishedDocuments++;
 			currentDocument = null;
 			documentTagIsOpen = false;
 		}
 		openSpans.clear();
+		numOfOpenSpansWithoutTokens = 0;
 	}
 
-	private void addAttributesAsAnnotations(String tag, AnnotatableElement annotatableElement) {
-		final Map<String, String> attributeValuePairs = XMLUtils.extractAttributeValuePairs(tag);
+	private void addAttributesAsAnnotations(Map<String, String> attributeValuePairs,
+			AnnotatableElement annotatableElement) {
 		for (Entry<String, String> attributeValuePair : attributeValuePairs.entrySet()) {
 			final Annotation annotation = TreetaggerFactory.eINSTANCE.createAnnotation(attributeValuePair.getKey(),
-					attributeValuePair.getValue().replace("&lt;", "<").replace("&gt;",">").replace("&amp;","&"));
+					unescape(attributeValuePair.getValue()), stringPool);
 			annotatableElement.getAnnotations().add(annotation);
 		}
 	}
 
-	private void beginSpan(String spanName, String startTag) {
+	static String unescape(String attributeValue) {
+		return attributeValue.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+	}
+
+	private void beginSpan(String spanName, Map<String, String> attributes) {
 		if (currentDocument == null) {
 			beginDocument(null);
 		}
 		Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		span.setId(nextSpanId++);
 		openSpans.add(0, span);
-		span.setName(spanName);
-		addAttributesAsAnnotations(startTag, span);
+		numOfOpenSpansWithoutTokens++;
+		span.setName(stringPool.intern(spanName));
+		addAttributesAsAnnotations(attributes, span);
+		listener.startSpan(span);
 	}
 
 	private void endSpan(String spanName) {
@@ -255,12 +495,16 @@ public class Deserializer {
 			Span openSpan = openSpans.get(i);
 			if (openSpan.getName().equalsIgnoreCase(spanName)) {
 				matchingStartTagExists = true;
-				if (openSpan.getTokens().isEmpty()) {
+				openSpans.remove(i);
+				if (i < numOfOpenSpansWithoutTokens) {
+					numOfOpenSpansWithoutTokens--;
 					logger.warn(String.format(
 							"input file '%s' (line %d): no tokens contained in span '<%s>'. span will be ignored!",
 							location.lastSegment(), lineNumber, openSpan.getName()));
+					listener.discardSpan(openSpan);
+				} else {
+					listener.endSpan(openSpan);
 				}
-				openSpans.remove(i);
 				break;
 			}
 		}
@@ -271,47 +515,23 @@ public class Deserializer {
 		}
 	}
 
-	private Token createTokenFromLine(String line, long lineNr) {
-		final String[] tuple = line.split(COLUMN_SEPARATOR);
-		doesTupleHasExpectedNumOfColumns(tuple);
-		final Token token = Treetagger.buildToken().withLine(lineNr).withText(tuple[0].trim()).build();
-		createAnnotationsForToken(token, tuple);
-		return token;
+	static boolean isBlank(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			if (line.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	void doesTupleHasExpectedNumOfColumns(String... tuple) {
-		if (tuple.length > columnNames.size()) {
+	void doesTupleHasExpectedNumOfColumns(int numOfColumns) {
+		if (numOfColumns > columnNames.size()) {
 			rowsWithTooMuchColumns.add(lineNumber);
-		} else if (tuple.length < columnNames.size()) {
+		} else if (numOfColumns < columnNames.size()) {
 			rowsWithTooLessColumns.add(lineNumber);
 		}
 	}
 
-	void connectTokenWithOpenSpans(Token token) {
-		for (Span span : openSpans) {
-			token.getSpans().add(span);
-			span.getTokens().add(token);
-		}
-	}
-
-	void createAnnotationsForToken(Token token, String... tuple) {
-		for (int columnNumber = 1; columnNumber < tuple.length; columnNumber++) {
-			final Annotation anno = TreetaggerFactory.eINSTANCE.createAnnotation(findColumnName(columnNumber),
-					tuple[columnNumber].trim());
-			token.getAnnotations().add(anno);
-		}
-	}
-
-	String findColumnName(int colNumber) {
-		final String annoName;
-		if (colNumber >= columnNames.size()) {
-			annoName = DEFAULT_ANNOTATION_NAME;
-		} else {
-			annoName = columnNames.get(colNumber);
-		}
-		return annoName;
-	}
-
 	public static class Builder {
 		private Deserializer deserializer = new Deserializer();
 
@@ -325,6 +545,29 @@ public class Deserializer {
 			return this;
 		}
 
+		public Builder withStringPool(StringPool stringPool) {
+			deserializer.setStringPool(stringPool);
+			return this;
+		}
+
+		public Builder withColumnarDocuments(boolean columnarDocuments) {
+			deserializer.setColumnarDocuments(columnarDocuments);
+			return this;
+		}
+
+		public Builder withParallelism(int parallelism) {
+			deserializer.setParallelism(parallelism);
+			return this;
+		}
+
+		/**
+		 * Reads only the document with the given index of the file the index
+		 * belongs to.
+		 */
+		public Document from(DocumentIndex index, int documentIndex) {
+			return deserializer.deserializeDocument(index, documentIndex);
+		}
+
 		public Builder withMetaTagName(String metaTagName) {
 			deserializer.setMetaTagName(metaTagName);
 			return this;
@@ -334,5 +577,14 @@ public class Deserializer {
 			deserializer.setLocation(location);
 			return deserializer.deserialize();
 		}
+
+		/**
+		 * Streams the content of the file to the given listener instead of
+		 * building the model.
+		 */
+		public void from(URI location, DeserializerListener listener) {
+			deserializer.setLocation(location);
+			deserializer.deserialize(listener);
+		}
 	}
 }
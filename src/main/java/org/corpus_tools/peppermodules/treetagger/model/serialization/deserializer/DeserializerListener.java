@@ -0,0 +1,84 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+
+/**
+ * Receives the content of a TreeTagger file from the {@link Deserializer} in
+ * reading order. The {@link Deserializer} does not keep any token, so a
+ * listener which does not collect them itself can process files of any size in
+ * bounded memory.
+ *
+ * Neither tokens are added to documents nor spans and tokens are linked to each
+ * other, this is up to the listener (see {@link DocumentCollector}).
+ */
+public interface DeserializerListener {
+	/**
+	 * Called when a document begins, either by a meta tag or implicitly by
+	 * content outside of any meta tag. The passed document already contains
+	 * the annotations of the meta tag.
+	 */
+	void startDocument(Document document);
+
+	/**
+	 * Called for each start tag of a span. The passed span already contains the
+	 * annotations of the tag.
+	 */
+	void startSpan(Span span);
+
+	/**
+	 * Called for each data row.
+	 *
+	 * @param token
+	 *            the token containing all annotations of the row
+	 * @param openSpans
+	 *            a read-only view of all spans containing the token, the most
+	 *            recently opened span comes first. The view is only valid
+	 *            during this call.
+	 */
+	void token(Token token, List<Span> openSpans);
+
+	/**
+	 * Called for each end tag closing a span, which contains at least one
+	 * token.
+	 */
+	void endSpan(Span span);
+
+	/**
+	 * Called for a span, which must be ignored, because it does not contain
+	 * any token or its end tag is missing. Tokens which were already passed to
+	 * {@link #token(Token, List)} with this span are not passed again.
+	 */
+	void discardSpan(Span span);
+
+	/**
+	 * Called when a document is complete.
+	 */
+	void endDocument(Document document);
+
+	/**
+	 * Called when a document must be ignored, because its meta end tag is
+	 * missing.
+	 */
+	void discardDocument(Document document);
+}
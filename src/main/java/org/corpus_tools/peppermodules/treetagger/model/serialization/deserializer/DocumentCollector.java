@@ -0,0 +1,85 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+
+/**
+ * A {@link DeserializerListener} building the complete model of a TreeTagger
+ * file in memory.
+ */
+class DocumentCollector implements DeserializerListener {
+	private final List<Document> documents = new ArrayList<>();
+	private Document currentDocument = null;
+
+	public List<Document> getDocuments() {
+		return documents;
+	}
+
+	@Override
+	public void startDocument(Document document) {
+		currentDocument = document;
+	}
+
+	@Override
+	public void startSpan(Span span) {
+		// nothing to do, spans are linked when their tokens arrive
+	}
+
+	@Override
+	public void token(Token token, List<Span> openSpans) {
+		for (Span span : openSpans) {
+			token.getSpans().add(span);
+			span.getTokens().add(token);
+		}
+		currentDocument.getTokens().add(token);
+	}
+
+	@Override
+	public void endSpan(Span span) {
+		// nothing to do
+	}
+
+	@Override
+	public void discardSpan(Span span) {
+		for (int tokenIndex = span.getTokens().size() - 1; tokenIndex >= 0; tokenIndex--) {
+			Token token = span.getTokens().get(tokenIndex);
+			if (token.getSpans().contains(span)) {
+				token.getSpans().remove(span);
+			} else {
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void endDocument(Document document) {
+		documents.add(document);
+		currentDocument = null;
+	}
+
+	@Override
+	public void discardDocument(Document document) {
+		currentDocument = null;
+	}
+}
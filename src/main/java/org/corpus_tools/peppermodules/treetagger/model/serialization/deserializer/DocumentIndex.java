@@ -0,0 +1,438 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleException;
+import org.eclipse.emf.common.util.URI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the documents of a TreeTagger file, which records the byte offset
+ * and line number of each document, so that the {@link Deserializer} can parse
+ * a single document without reading the file up to it (see
+ * {@link Deserializer#deserializeDocument(DocumentIndex, int)}).
+ *
+ * The index is built by a pre-scan, which only decodes tag lines and follows
+ * the same rules as the {@link Deserializer}: content outside of a meta tag
+ * begins a document implicitly and a document with a missing meta end tag is
+ * not contained. Since the scan works on bytes, it is only available for
+ * encodings in which a line feed is the single byte 0x0A. The pre-scan stops
+ * at the start of a second document, only then the whole file is scanned. For
+ * files with more than one document, the index is cached in a sidecar file
+ * next to the file, unless this is turned off, which is only used as long as
+ * size and modification time of the file are unchanged.
+ */
+public class DocumentIndex {
+	/** ending appended to the file name to get the name of the sidecar file */
+	public static final String SIDECAR_ENDING = ".idx";
+
+	private static final Logger logger = LoggerFactory.getLogger(DocumentIndex.class);
+	private static final int SIDECAR_VERSION = 1;
+
+	/**
+	 * Position of a document in the file.
+	 */
+	public static class DocumentEntry {
+		private final long offset;
+		private final int lineNumber;
+		private final Map<String, String> attributes;
+
+		DocumentEntry(long offset, int lineNumber, Map<String, String> attributes) {
+			this.offset = offset;
+			this.lineNumber = lineNumber;
+			this.attributes = attributes;
+		}
+
+		/** Returns the byte offset of the first line of the document. */
+		public long getOffset() {
+			return offset;
+		}
+
+		/** Returns the number of the first line of the document. */
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * Returns the attributes of the meta tag with unescaped values or an
+		 * empty map for a document without meta tag.
+		 */
+		public Map<String, String> getAttributes() {
+			return attributes;
+		}
+	}
+
+	private final URI location;
+	private final List<DocumentEntry> documents;
+
+	private DocumentIndex(URI location, List<DocumentEntry> documents) {
+		this.location = location;
+		this.documents = documents;
+	}
+
+	public URI getLocation() {
+		return location;
+	}
+
+	/** Returns the number of documents in the file. */
+	public int size() {
+		return documents.size();
+	}
+
+	public DocumentEntry get(int documentIndex) {
+		return documents.get(documentIndex);
+	}
+
+	/**
+	 * Returns the index of the file, either from its sidecar file or by
+	 * scanning the file, or <code>null</code> if the encoding does not allow
+	 * to scan bytes. The index of a scanned file is written to the sidecar
+	 * file.
+	 */
+	public static DocumentIndex load(URI location, String fileEncoding, String metaTagName) {
+		return load(location, fileEncoding, metaTagName, true);
+	}
+
+	/**
+	 * Returns the index of the file like {@link #load(URI, String, String)}.
+	 * 
+	 * @param writeSidecar
+	 *            if false, an index, which was scanned, is not written to the
+	 *            sidecar file
+	 */
+	public static DocumentIndex load(URI location, String fileEncoding, String metaTagName,
+			boolean writeSidecar) {
+		final Charset charset = Charset.forName(fileEncoding);
+		if (!ChunkParser.canSplit(charset)) {
+			return null;
+		}
+		final File file = new File(location.toFileString());
+		final File sidecar = new File(file.getPath() + SIDECAR_ENDING);
+		if (sidecar.isFile()) {
+			try {
+				final DocumentIndex index = read(location, file, sidecar, charset, metaTagName);
+				if (index != null) {
+					return index;
+				}
+			} catch (IOException e) {
+				logger.debug("Cannot read document index '{}', the file is scanned again. ", sidecar, e);
+			}
+		}
+		final DocumentIndex index;
+		try {
+			final Scanner probe = scan(location, charset, metaTagName, true);
+			if (!probe.isStopped()) {
+				// at most one document, which needs no index
+				return new DocumentIndex(location, probe.documents);
+			}
+			index = scan(location, charset, metaTagName);
+		} catch (IOException e) {
+			throw new PepperModuleException("Cannot read treetagger file '" + location + "'. ", e);
+		}
+		if (writeSidecar && index.size() > 1) {
+			try {
+				index.write(file, sidecar, charset, metaTagName);
+			} catch (IOException e) {
+				logger.warn("Cannot write document index '{}', the file is scanned again on the next import. ", sidecar,
+						e);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Scans the file for documents without creating any token.
+	 */
+	static DocumentIndex scan(URI location, Charset charset, String metaTagName) throws IOException {
+		return new DocumentIndex(location, scan(location, charset, metaTagName, false).documents);
+	}
+
+	/**
+	 * Scans the file, if requested only up to the start of a second document.
+	 */
+	private static Scanner scan(URI location, Charset charset, String metaTagName, boolean stopAtSecondDocument)
+			throws IOException {
+		final Scanner scanner = new Scanner(charset, metaTagName, stopAtSecondDocument);
+		try (InputStream input = new FileInputStream(location.toFileString())) {
+			final byte[] buffer = new byte[64 * 1024];
+			long bufferOffset = 0;
+			boolean skipLineFeed = false;
+			int numOfBytes;
+			while ((numOfBytes = input.read(buffer)) > 0 && !scanner.isStopped()) {
+				for (int i = 0; i < numOfBytes && !scanner.isStopped(); i++) {
+					final byte b = buffer[i];
+					if (b == '\n' && skipLineFeed) {
+						scanner.lineStart = bufferOffset + i + 1;
+					} else if (b == '\n' || b == '\r') {
+						scanner.endLine(bufferOffset + i + 1);
+					} else {
+						scanner.append(b);
+					}
+					skipLineFeed = b == '\r';
+				}
+				bufferOffset += numOfBytes;
+			}
+			if (scanner.isStopped()) {
+				return scanner;
+			}
+			if (scanner.lineLength > 0) {
+				scanner.endLine(bufferOffset);
+			}
+			scanner.endDocument();
+		}
+		return scanner;
+	}
+
+	/**
+	 * Counts the documents of the file like the pre-scan, but on decoded lines,
+	 * so that it works for any encoding. Only tag lines are scanned, no token
+	 * is created. Like the pre-scan, the count stops at the start of a second
+	 * document, only then the whole file is scanned.
+	 */
+	public static int countDocuments(URI location, String fileEncoding, String metaTagName) {
+		final Charset charset = Charset.forName(fileEncoding);
+		Scanner scanner = countDocuments(location, charset, metaTagName, true);
+		if (scanner.isStopped()) {
+			scanner = countDocuments(location, charset, metaTagName, false);
+		}
+		return scanner.documents.size();
+	}
+
+	private static Scanner countDocuments(URI location, Charset charset, String metaTagName,
+			boolean stopAtSecondDocument) {
+		final Scanner scanner = new Scanner(charset, metaTagName, stopAtSecondDocument);
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(location.toFileString()), charset))) {
+			String line = null;
+			while (!scanner.isStopped() && (line = reader.readLine()) != null) {
+				scanner.scanLine(line);
+			}
+			if (!scanner.isStopped()) {
+				scanner.endDocument();
+			}
+		} catch (IOException e) {
+			throw new PepperModuleException("Cannot read treetagger file '" + location + "'. ", e);
+		}
+		return scanner;
+	}
+
+	/**
+	 * Follows the document boundaries line by line like the
+	 * {@link Deserializer}, but only decodes lines starting with '&lt;'.
+	 */
+	private static class Scanner {
+		private final Charset charset;
+		private final String metaTagName;
+		private final boolean stopAtSecondDocument;
+		private final LineScanner lineScanner = new LineScanner();
+		private final List<DocumentEntry> documents = new ArrayList<>();
+		private DocumentEntry currentDocument = null;
+		private boolean documentTagIsOpen = false;
+		private int numOfDocumentStarts = 0;
+
+		private long lineStart = 0;
+		private int lineNumber = 1;
+		private boolean isBlank = true;
+		/** bytes of the current line, only collected if it starts with '<' */
+		private byte[] line = new byte[256];
+		private int lineLength = 0;
+
+		Scanner(Charset charset, String metaTagName, boolean stopAtSecondDocument) {
+			this.charset = charset;
+			this.metaTagName = metaTagName;
+			this.stopAtSecondDocument = stopAtSecondDocument;
+		}
+
+		/**
+		 * Returns true, if the scan was stopped at the start of a second
+		 * document. Then, the documents found so far are incomplete.
+		 */
+		boolean isStopped() {
+			return stopAtSecondDocument && numOfDocumentStarts > 1;
+		}
+
+		void append(byte b) {
+			if (lineLength == 0 || line[0] == '<') {
+				if (lineLength == line.length) {
+					line = Arrays.copyOf(line, 2 * lineLength);
+				}
+				line[lineLength] = b;
+			}
+			lineLength++;
+			// unsigned comparison, bytes of multi byte characters are no white space
+			if ((b & 0xFF) > ' ') {
+				isBlank = false;
+			}
+		}
+
+		void endLine(long nextLineStart) {
+			if (!isBlank) {
+				mapLine();
+			}
+			lineStart = nextLineStart;
+			lineNumber++;
+			lineLength = 0;
+			isBlank = true;
+		}
+
+		/** Scans a decoded line, for which no byte offsets are recorded. */
+		void scanLine(String decodedLine) {
+			if (!Deserializer.isBlank(decodedLine)) {
+				if (decodedLine.charAt(0) != '<') {
+					beginImplicitDocument();
+				} else {
+					mapTagLine(decodedLine);
+				}
+			}
+			lineNumber++;
+		}
+
+		private void mapLine() {
+			if (line[0] != '<') {
+				beginImplicitDocument();
+				return;
+			}
+			mapTagLine(new String(line, 0, lineLength, charset));
+		}
+
+		private void mapTagLine(String tagLine) {
+			final LineScanner.LineType lineType = lineScanner.scan(tagLine);
+			if (lineType == LineScanner.LineType.START_TAG) {
+				if (lineScanner.getTagName().equalsIgnoreCase(metaTagName)) {
+					endDocument();
+					numOfDocumentStarts++;
+					if (isStopped()) {
+						return;
+					}
+					currentDocument = new DocumentEntry(lineStart, lineNumber,
+							unescape(lineScanner.getAttributes()));
+					documentTagIsOpen = true;
+				} else {
+					beginImplicitDocument();
+				}
+			} else if (lineType == LineScanner.LineType.END_TAG) {
+				if (lineScanner.getTagName().equalsIgnoreCase(metaTagName)) {
+					documentTagIsOpen = false;
+					endDocument();
+				}
+			} else if (lineType == LineScanner.LineType.TOKEN) {
+				beginImplicitDocument();
+			}
+		}
+
+		private Map<String, String> unescape(Map<String, String> attributes) {
+			final Map<String, String> unescapedAttributes = new HashMap<>(attributes.size() * 2);
+			for (Entry<String, String> attribute : attributes.entrySet()) {
+				unescapedAttributes.put(attribute.getKey(), Deserializer.unescape(attribute.getValue()));
+			}
+			return unescapedAttributes;
+		}
+
+		private void beginImplicitDocument() {
+			if (currentDocument == null) {
+				numOfDocumentStarts++;
+				if (isStopped()) {
+					return;
+				}
+				currentDocument = new DocumentEntry(lineStart, lineNumber, Collections.<String, String> emptyMap());
+				documentTagIsOpen = false;
+			}
+		}
+
+		void endDocument() {
+			if (currentDocument != null && !documentTagIsOpen) {
+				documents.add(currentDocument);
+			}
+			currentDocument = null;
+			documentTagIsOpen = false;
+		}
+	}
+
+	/**
+	 * Reads the index from the sidecar file or returns <code>null</code>, if
+	 * it does not belong to the current state of the file.
+	 */
+	private static DocumentIndex read(URI location, File file, File sidecar, Charset charset, String metaTagName)
+			throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)))) {
+			if (input.readInt() != SIDECAR_VERSION || input.readLong() != file.length()
+					|| input.readLong() != file.lastModified() || !charset.name().equals(input.readUTF())
+					|| !metaTagName.equals(input.readUTF())) {
+				return null;
+			}
+			final int numOfDocuments = input.readInt();
+			final List<DocumentEntry> documents = new ArrayList<>(numOfDocuments);
+			for (int documentIndex = 0; documentIndex < numOfDocuments; documentIndex++) {
+				final long offset = input.readLong();
+				final int lineNumber = input.readInt();
+				final int numOfAttributes = input.readInt();
+				Map<String, String> attributes = Collections.emptyMap();
+				if (numOfAttributes > 0) {
+					attributes = new HashMap<>();
+					for (int attributeIndex = 0; attributeIndex < numOfAttributes; attributeIndex++) {
+						attributes.put(input.readUTF(), input.readUTF());
+					}
+				}
+				documents.add(new DocumentEntry(offset, lineNumber, attributes));
+			}
+			return new DocumentIndex(location, documents);
+		}
+	}
+
+	private void write(File file, File sidecar, Charset charset, String metaTagName) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+			output.writeInt(SIDECAR_VERSION);
+			output.writeLong(file.length());
+			output.writeLong(file.lastModified());
+			output.writeUTF(charset.name());
+			output.writeUTF(metaTagName);
+			output.writeInt(documents.size());
+			for (DocumentEntry document : documents) {
+				output.writeLong(document.getOffset());
+				output.writeInt(document.getLineNumber());
+				output.writeInt(document.getAttributes().size());
+				for (Entry<String, String> attribute : document.getAttributes().entrySet()) {
+					output.writeUTF(attribute.getKey());
+					output.writeUTF(attribute.getValue());
+				}
+			}
+		}
+	}
+}
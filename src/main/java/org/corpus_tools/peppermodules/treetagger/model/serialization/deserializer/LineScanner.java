@@ -0,0 +1,282 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Classifies a line of a TreeTagger file in a single pass over its characters.
+ * Lines not starting with '&lt;' are token rows without any further
+ * inspection. For tag lines, the tag name and the attributes are extracted
+ * while the line is validated.
+ *
+ * The accepted language is exactly the one of {@link XMLUtils#startTag},
+ * {@link XMLUtils#endTag} and {@link XMLUtils#isProcessingInstructionTag(String)},
+ * a line not matching any of them is a token row. The scanner keeps the result
+ * of the last call to {@link #scan(String)} and therefore is not thread-safe.
+ */
+class LineScanner {
+	enum LineType {
+		TOKEN, START_TAG, END_TAG, PROCESSING_INSTRUCTION
+	}
+
+	private String tagName = null;
+	private Map<String, String> attributes = Collections.emptyMap();
+
+	/**
+	 * Returns the name of the tag of the last scanned line, or
+	 * <code>null</code> if it was no start or end tag.
+	 */
+	String getTagName() {
+		return tagName;
+	}
+
+	/**
+	 * Returns the attribute-value-pairs of the last scanned start tag with the
+	 * same content as {@link XMLUtils#extractAttributeValuePairs(String)}.
+	 * Values are not unescaped.
+	 */
+	Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	LineType scan(String line) {
+		tagName = null;
+		attributes = Collections.emptyMap();
+		if (line.length() < 2 || line.charAt(0) != '<') {
+			return LineType.TOKEN;
+		}
+		final char second = line.charAt(1);
+		if (second == '?') {
+			return isProcessingInstruction(line) ? LineType.PROCESSING_INSTRUCTION : LineType.TOKEN;
+		} else if (second == '/') {
+			return scanEndTag(line) ? LineType.END_TAG : LineType.TOKEN;
+		}
+		return scanStartTag(line) ? LineType.START_TAG : LineType.TOKEN;
+	}
+
+	/**
+	 * '&lt;' Name (S Attribute)* S? '&gt;' '\t'*
+	 */
+	private boolean scanStartTag(String line) {
+		final int nameEnd = scanName(line, 1);
+		if (nameEnd < 0) {
+			return false;
+		}
+		Map<String, String> attributes = null;
+		int pos = nameEnd;
+		while (true) {
+			final int whiteSpaceEnd = scanWhiteSpace(line, pos);
+			if (whiteSpaceEnd == pos) {
+				break;
+			}
+			pos = whiteSpaceEnd;
+			final int attributeNameEnd = scanName(line, pos);
+			if (attributeNameEnd < 0) {
+				break;
+			}
+			int valueStart = scanWhiteSpace(line, attributeNameEnd);
+			if (valueStart >= line.length() || line.charAt(valueStart) != '=') {
+				return false;
+			}
+			valueStart = scanWhiteSpace(line, valueStart + 1);
+			final int valueEnd = scanAttributeValue(line, valueStart);
+			if (valueEnd < 0) {
+				return false;
+			}
+			if (attributes == null) {
+				attributes = new HashMap<>();
+			}
+			attributes.put(line.substring(pos, attributeNameEnd), line.substring(valueStart + 1, valueEnd - 1));
+			pos = valueEnd;
+		}
+		if (!isTagEnd(line, pos)) {
+			return false;
+		}
+		tagName = line.substring(1, nameEnd);
+		if (attributes != null) {
+			this.attributes = attributes;
+		}
+		return true;
+	}
+
+	/**
+	 * '&lt;/' Name S? '&gt;' '\t'*
+	 */
+	private boolean scanEndTag(String line) {
+		final int nameEnd = scanName(line, 2);
+		if (nameEnd < 0 || !isTagEnd(line, scanWhiteSpace(line, nameEnd))) {
+			return false;
+		}
+		tagName = line.substring(2, nameEnd);
+		return true;
+	}
+
+	/**
+	 * '&lt;?' Name (S Char*)? '?&gt;'
+	 */
+	private boolean isProcessingInstruction(String line) {
+		final int nameEnd = scanName(line, 2);
+		if (nameEnd < 0) {
+			return false;
+		}
+		final int length = line.length();
+		if (length < nameEnd + 2 || line.charAt(length - 2) != '?' || line.charAt(length - 1) != '>') {
+			return false;
+		}
+		if (nameEnd == length - 2) {
+			return true;
+		}
+		if (!isWhiteSpace(line.charAt(nameEnd))) {
+			return false;
+		}
+		for (int i = nameEnd + 1; i < length - 2; i++) {
+			if (!isChar(line.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the line continues with '&gt;' followed by nothing but
+	 * tabs.
+	 */
+	private static boolean isTagEnd(String line, int pos) {
+		if (pos >= line.length() || line.charAt(pos) != '>') {
+			return false;
+		}
+		for (int i = pos + 1; i < line.length(); i++) {
+			if (line.charAt(i) != '\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the end of the name starting at pos or -1 if there is none.
+	 */
+	private static int scanName(String line, int pos) {
+		if (pos >= line.length() || !isNameStartChar(line.charAt(pos))) {
+			return -1;
+		}
+		pos++;
+		while (pos < line.length() && isNameChar(line.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int scanWhiteSpace(String line, int pos) {
+		while (pos < line.length() && isWhiteSpace(line.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the position behind the closing quote of the quoted value
+	 * starting at pos or -1 if there is none.
+	 */
+	private static int scanAttributeValue(String line, int pos) {
+		if (pos >= line.length()) {
+			return -1;
+		}
+		final char quote = line.charAt(pos);
+		if (quote != '"' && quote != '\'') {
+			return -1;
+		}
+		pos++;
+		while (pos < line.length()) {
+			final char c = line.charAt(pos);
+			if (c == quote) {
+				return pos + 1;
+			} else if (c == '<') {
+				return -1;
+			} else if (c == '&') {
+				pos = scanReference(line, pos);
+				if (pos < 0) {
+					return -1;
+				}
+			} else {
+				pos++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * '&amp;' Name ';' | '&amp;#' [0-9]+ ';' | '&amp;#x' [0-9a-fA-F]+ ';'
+	 */
+	private static int scanReference(String line, int pos) {
+		pos++;
+		if (pos < line.length() && line.charAt(pos) == '#') {
+			pos++;
+			final boolean hex = pos < line.length() && line.charAt(pos) == 'x';
+			if (hex) {
+				pos++;
+			}
+			final int digitsStart = pos;
+			while (pos < line.length() && isDigit(line.charAt(pos), hex)) {
+				pos++;
+			}
+			if (pos == digitsStart) {
+				return -1;
+			}
+		} else {
+			pos = scanName(line, pos);
+			if (pos < 0) {
+				return -1;
+			}
+		}
+		return pos < line.length() && line.charAt(pos) == ';' ? pos + 1 : -1;
+	}
+
+	private static boolean isDigit(char c, boolean hex) {
+		return (c >= '0' && c <= '9') || (hex && ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')));
+	}
+
+	private static boolean isWhiteSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static boolean isChar(char c) {
+		return c == '\t' || c == '\n' || c == '\r' || (c >= 0x20 && c <= 0xD7FF) || (c >= 0xE000 && c <= 0xFFFD);
+	}
+
+	private static boolean isNameStartChar(char c) {
+		if (c < 0x80) {
+			return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':';
+		}
+		return (c >= 0xC0 && c <= 0xD6) || (c >= 0xD8 && c <= 0xF6) || (c >= 0xF8 && c <= 0x2FF)
+				|| (c >= 0x370 && c <= 0x37D) || (c >= 0x37F && c <= 0x1FFF) || (c >= 0x200C && c <= 0x200D)
+				|| (c >= 0x2070 && c <= 0x218F) || (c >= 0x2C00 && c <= 0x2FEF) || (c >= 0x3001 && c <= 0xD7FF)
+				|| (c >= 0xF900 && c <= 0xFDCF) || (c >= 0xFDF0 && c <= 0xFFFD);
+	}
+
+	private static boolean isNameChar(char c) {
+		if (isNameStartChar(c)) {
+			return true;
+		}
+		return c == '-' || c == '.' || (c >= '0' && c <= '9') || c == 0xB7 || (c >= 0x300 && c <= 0x36F)
+				|| (c >= 0x203F && c <= 0x2040);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Annotation;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
+import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
+
+/**
+ * Creates tokens from the token lines of a TreeTagger file, used by the
+ * {@link Deserializer} and by each {@link ChunkParser}. Besides the column
+ * names and the string pool, which may be shared, a parser only keeps the
+ * bounds of the columns of the line split last, so each thread needs a parser
+ * of its own.
+ */
+class TokenLineParser {
+	private final List<String> columnNames;
+	private final StringPool stringPool;
+	/**
+	 * Bounds of the trimmed columns of the line passed last to
+	 * {@link #splitColumns(String)}, column i starts at index 2*i and ends at
+	 * index 2*i+1. The buffer is reused for all lines.
+	 */
+	private int[] columnBounds = new int[16];
+
+	TokenLineParser(List<String> columnNames, StringPool stringPool) {
+		this.columnNames = columnNames;
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Creates the token for the line, which must have been passed to
+	 * {@link #splitColumns(String)} before.
+	 */
+	Token createToken(String line, long lineNr, int numOfColumns) {
+		final Token token = Treetagger.buildToken().withLine(lineNr).withText(getColumn(line, 0)).build();
+		createAnnotationsForToken(token, line, numOfColumns);
+		return token;
+	}
+
+	/**
+	 * Splits the line at {@link Deserializer#COLUMN_SEPARATOR} into
+	 * {@link #columnBounds} without creating any string. Columns are trimmed
+	 * like by {@link String#trim()} and the number of columns is the same as of
+	 * <code>line.split(COLUMN_SEPARATOR)</code>, so trailing empty columns do
+	 * not count.
+	 *
+	 * @return the number of columns
+	 */
+	int splitColumns(String line) {
+		int numOfColumns = 0;
+		int numOfColumnsUpToLastNonEmpty = 0;
+		int columnStart = 0;
+		while (true) {
+			int columnEnd = line.indexOf(Deserializer.COLUMN_SEPARATOR, columnStart);
+			if (columnEnd < 0) {
+				columnEnd = line.length();
+			}
+			if (columnEnd > columnStart) {
+				numOfColumnsUpToLastNonEmpty = numOfColumns + 1;
+			}
+			int start = columnStart;
+			int end = columnEnd;
+			while (start < end && line.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {
+				end--;
+			}
+			if (2 * numOfColumns + 1 >= columnBounds.length) {
+				columnBounds = Arrays.copyOf(columnBounds, 2 * columnBounds.length);
+			}
+			columnBounds[2 * numOfColumns] = start;
+			columnBounds[2 * numOfColumns + 1] = end;
+			numOfColumns++;
+			if (columnEnd == line.length()) {
+				break;
+			}
+			columnStart = columnEnd + Deserializer.COLUMN_SEPARATOR.length();
+		}
+		// a line without any separator is a single column, even if empty
+		return numOfColumns == 1 ? 1 : numOfColumnsUpToLastNonEmpty;
+	}
+
+	/**
+	 * Returns the trimmed column of the line passed last to
+	 * {@link #splitColumns(String)}.
+	 */
+	private String getColumn(String line, int columnNumber) {
+		return line.substring(columnBounds[2 * columnNumber], columnBounds[2 * columnNumber + 1]);
+	}
+
+	/**
+	 * Creates an annotation for each but the first column of the line, which
+	 * must have been passed to {@link #splitColumns(String)} before.
+	 */
+	void createAnnotationsForToken(Token token, String line, int numOfColumns) {
+		for (int columnNumber = 1; columnNumber < numOfColumns; columnNumber++) {
+			final Annotation anno = TreetaggerFactory.eINSTANCE.createAnnotation(findColumnName(columnNumber),
+					getColumn(line, columnNumber), stringPool);
+			token.getAnnotations().add(anno);
+		}
+	}
+
+	String findColumnName(int colNumber) {
+		final String annoName;
+		if (colNumber >= columnNames.size()) {
+			annoName = Deserializer.DEFAULT_ANNOTATION_NAME;
+		} else {
+			annoName = columnNames.get(colNumber);
+		}
+		return annoName;
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class DocumentWriterPoolTest {
+
+	@Test
+	public void whenStreamIsClosed_thenDocumentShouldBeWrittenByAWriterThread() throws IOException {
+		final DocumentWriterPool pool = new DocumentWriterPool(1, 2);
+		final ByteArrayOutputStream file = new ByteArrayOutputStream();
+		final AtomicReference<String> writerName = new AtomicReference<>();
+		final byte[] document = createDocument(3 * DocumentWriterPool.BLOCK_SIZE + 5);
+
+		try (OutputStream out = pool.open("document", () -> {
+			writerName.set(Thread.currentThread().getName());
+			return file;
+		})) {
+			out.write(document, 0, 7);
+			out.write(document[7]);
+			out.write(document, 8, document.length - 8);
+		}
+
+		assertThat(writerName.get()).isEqualTo("treetagger-writer-1");
+		assertThat(file.toByteArray()).isEqualTo(document);
+		pool.shutdown();
+	}
+
+	/**
+	 * While the writer thread is stuck writing a block, the mapper keeps on
+	 * converting, until the queue is full.
+	 */
+	@Test
+	public void whenWriterIsBusy_thenMapperShouldConvertUntilTheQueueIsFull() throws Exception {
+		final DocumentWriterPool pool = new DocumentWriterPool(1, 2);
+		final ByteArrayOutputStream file = new ByteArrayOutputStream();
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final byte[] document = createDocument(4 * DocumentWriterPool.BLOCK_SIZE + 1);
+		final OutputStream out = pool.open("document", () -> new FilterOutputStream(file) {
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				writing.countDown();
+				awaitQuietly(release);
+				file.write(bytes, offset, length);
+			}
+		});
+
+		// the first block is taken by the writer, the second one is queued
+		out.write(document, 0, 2 * DocumentWriterPool.BLOCK_SIZE + 1);
+		writing.await();
+		final AtomicBoolean converted = new AtomicBoolean();
+		final Thread mapper = new Thread(() -> {
+			try {
+				out.write(document, 2 * DocumentWriterPool.BLOCK_SIZE + 1, 2 * DocumentWriterPool.BLOCK_SIZE);
+				converted.set(true);
+				out.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		mapper.start();
+		while (mapper.getState() != Thread.State.WAITING) {
+			Thread.yield();
+		}
+
+		assertThat(converted.get()).isFalse();
+		assertThat(file.size()).isEqualTo(0);
+		release.countDown();
+		mapper.join();
+		assertThat(converted.get()).isTrue();
+		assertThat(file.toByteArray()).isEqualTo(document);
+		pool.shutdown();
+	}
+
+	@Test
+	public void whenDocumentCannotBeWritten_thenCloseShouldThrowTheError() throws IOException {
+		final DocumentWriterPool pool = new DocumentWriterPool(2, 2);
+
+		final OutputStream broken = pool.open("broken", () -> {
+			throw new IOException("disk full");
+		});
+		broken.write(createDocument(10));
+		try {
+			broken.close();
+			fail("Failure of writer was not reported.");
+		} catch (IOException e) {
+			assertThat(e.getCause()).hasMessage("disk full");
+		}
+		final ByteArrayOutputStream file = new ByteArrayOutputStream();
+		try (OutputStream out = pool.open("fine", () -> file)) {
+			out.write(createDocument(10));
+		}
+		assertThat(file.toByteArray()).isEqualTo(createDocument(10));
+		pool.shutdown();
+	}
+
+	private static byte[] createDocument(int length) {
+		final byte[] document = new byte[length];
+		for (int i = 0; i < length; i++) {
+			document[i] = (byte) i;
+		}
+		return document;
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -53,4 +53,32 @@ public class TreetaggerImporterPropertiesTest {
 		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_COLUMN_NAMES, "col1, col2, col3");
 		assertThat(fixture.getColumnNames()).containsExactly("tok", "col1", "col2", "col3");
 	}
+
+	@Test
+	public void whenCreatingSettings_thenTheyShouldNotChangeWithProperties() {
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_COLUMN_NAMES, "tok, col1");
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_SEPARATE_SPAN_ANNOS, "a,b");
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_POINTING_RELATION_TARGET_ANNOTATION, "head, ref");
+
+		final TreetaggerImporterSettings settings = fixture.createSettings();
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_COLUMN_NAMES, "tok, col2");
+
+		assertThat(settings.getColumnNames()).containsExactly("tok", "col1");
+		assertThat(settings.getSeparateSpanAnnos()).containsOnly("a", "b");
+		assertThat(settings.getPointingTargetAnno()).containsExactly("head", "ref");
+		assertThat(settings.getMetaTag()).isEqualTo("meta");
+		assertThat(settings.getReplacer()).isNull();
+	}
+
+	@Test
+	public void whenReplacementsChange_thenNewSettingsShouldUseThemAndOldSettingsShouldNot() {
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_TOKEN_REPLACEMENTS, "\"&amp;\":\"&\"");
+		final TreetaggerImporterSettings oldSettings = fixture.createSettings();
+
+		fixture.setPropertyValue(TreetaggerImporterProperties.PROP_TOKEN_REPLACEMENTS, "\"&lt;\":\"<\"");
+		final TreetaggerImporterSettings newSettings = fixture.createSettings();
+
+		assertThat(oldSettings.getReplacer().replace("&amp;&lt;")).isEqualTo("&&lt;");
+		assertThat(newSettings.getReplacer().replace("&amp;&lt;")).isEqualTo("&amp;<");
+	}
 }
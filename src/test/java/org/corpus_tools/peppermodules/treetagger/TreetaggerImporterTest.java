@@ -19,13 +19,24 @@ package org.corpus_tools.peppermodules.treetagger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.corpus_tools.pepper.common.FormatDesc;
 import org.corpus_tools.pepper.common.ModuleFitness;
 import org.corpus_tools.pepper.common.ModuleFitness.FitnessFeature;
 import org.corpus_tools.pepper.core.ModuleFitnessChecker;
+import org.corpus_tools.pepper.modules.PepperMapper;
 import org.corpus_tools.pepper.testFramework.PepperImporterTest;
 import org.corpus_tools.pepper.testFramework.PepperTestUtil;
+import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.DocumentIndex;
 import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SCorpusGraph;
+import org.corpus_tools.salt.common.SDocument;
 import org.eclipse.emf.common.util.URI;
 import org.junit.Before;
 import org.junit.Test;
@@ -59,4 +70,66 @@ public class TreetaggerImporterTest extends PepperImporterTest {
 		assertThat(fitness.getFitness(FitnessFeature.IS_IMPORTABLE_SEFTEST_DATA)).isTrue();
 		assertThat(fitness.getFitness(FitnessFeature.IS_VALID_SELFTEST_DATA)).isTrue();
 	}
+
+	@Test
+	public void whenImportingFileWithMultipleDocuments_thenEachDocumentShouldBeMappedSeparately()
+			throws IOException {
+		final File corpus = Files.createTempDirectory("treetaggerImporter").toFile();
+		corpus.deleteOnExit();
+		final File file = new File(corpus, "englishGerman.tt");
+		file.deleteOnExit();
+		new File(corpus, "englishGerman.tt" + DocumentIndex.SIDECAR_ENDING).deleteOnExit();
+		Files.copy(new File(PepperTestUtil.getTestResources(),
+				"/deserializer/fileWithMultipleDocuments/englishGerman.tt").toPath(), file.toPath());
+
+		assertThat(importAndMapDocuments(corpus)).containsOnly("englishGerman_1: The TreeTagger is easy to use .",
+				"englishGerman_2: Der TreeTagger ist einfach zu nutzen .");
+	}
+
+	/**
+	 * Files in an encoding, which cannot be indexed, are parsed as a whole
+	 * and their documents are handed out to the mappers.
+	 */
+	@Test
+	public void whenImportingFileWithMultipleDocumentsWithoutIndex_thenEachDocumentShouldBeMappedSeparately()
+			throws IOException {
+		final File corpus = Files.createTempDirectory("treetaggerImporter").toFile();
+		corpus.deleteOnExit();
+		final File file = new File(corpus, "englishGerman.tt");
+		file.deleteOnExit();
+		final String content = new String(Files.readAllBytes(new File(PepperTestUtil.getTestResources(),
+				"/deserializer/fileWithMultipleDocuments/englishGerman.tt").toPath()), StandardCharsets.UTF_8);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_16));
+		getFixture().getProperties().setPropertyValue(TreetaggerImporterProperties.PROP_FILE_ENCODING, "UTF-16");
+
+		assertThat(importAndMapDocuments(corpus)).containsOnly("englishGerman_1: The TreeTagger is easy to use .",
+				"englishGerman_2: Der TreeTagger ist einfach zu nutzen .");
+		assertThat(new File(corpus, "englishGerman.tt" + DocumentIndex.SIDECAR_ENDING)).doesNotExist();
+	}
+
+	/**
+	 * Imports the corpus structure of the corpus and maps all of its
+	 * documents.
+	 * 
+	 * @return name and text of each document
+	 */
+	private List<String> importAndMapDocuments(File corpus) {
+		getFixture().getCorpusDesc().setCorpusPath(URI.createFileURI(corpus.getAbsolutePath()));
+		final SCorpusGraph corpusGraph = SaltFactory.createSCorpusGraph();
+		getFixture().getSaltProject().addCorpusGraph(corpusGraph);
+
+		getFixture().importCorpusStructure(corpusGraph);
+
+		assertThat(corpusGraph.getDocuments()).hasSize(2);
+		final List<String> texts = new ArrayList<>();
+		for (SDocument sDocument : corpusGraph.getDocuments()) {
+			assertThat(corpusGraph.getCorpus(sDocument)).isNotNull();
+			final PepperMapper mapper = getFixture().createPepperMapper(sDocument.getIdentifier());
+			mapper.setProperties(getFixture().getProperties());
+			mapper.setDocument(sDocument);
+			mapper.mapSDocument();
+			texts.add(sDocument.getName() + ": " + sDocument.getDocumentGraph().getTextualDSs().get(0).getText());
+		}
+		return texts;
+	}
 }
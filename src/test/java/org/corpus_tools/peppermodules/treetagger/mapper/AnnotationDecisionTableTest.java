@@ -0,0 +1,57 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.corpus_tools.peppermodules.treetagger.mapper.AnnotationDecisionTable.Decision;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.core.SAnnotation;
+import org.corpus_tools.salt.semantics.SPOSAnnotation;
+import org.junit.Test;
+
+public class AnnotationDecisionTableTest {
+
+	private static SAnnotation createAnnotation(String name) {
+		final SAnnotation sAnno = SaltFactory.createSAnnotation();
+		sAnno.setName(name);
+		sAnno.setValue("value");
+		return sAnno;
+	}
+
+	@Test
+	public void whenDecidingAnnotations_thenClassShouldPrecedeName() {
+		final AnnotationDecisionTable table = new AnnotationDecisionTable();
+		final SPOSAnnotation posAnno = SaltFactory.createSPOSAnnotation();
+
+		assertThat(table.decide(posAnno)).isEqualTo(Decision.POS);
+		assertThat(table.decide(SaltFactory.createSLemmaAnnotation())).isEqualTo(Decision.LEMMA);
+		assertThat(table.decide(createAnnotation("POS"))).isEqualTo(Decision.POS_BY_NAME);
+		assertThat(table.decide(createAnnotation("Lemma"))).isEqualTo(Decision.LEMMA_BY_NAME);
+		assertThat(table.decide(createAnnotation("morph"))).isEqualTo(Decision.ANY);
+	}
+
+	@Test
+	public void whenTableIsFull_thenNamesShouldStillBeDecided() {
+		final AnnotationDecisionTable table = new AnnotationDecisionTable(1);
+
+		assertThat(table.decide(createAnnotation("morph"))).isEqualTo(Decision.ANY);
+		assertThat(table.decide(createAnnotation("pos"))).isEqualTo(Decision.POS_BY_NAME);
+		assertThat(table.size()).isEqualTo(1);
+	}
+}
@@ -19,15 +19,25 @@ package org.corpus_tools.peppermodules.treetagger.mapper;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.corpus_tools.pepper.common.DOCUMENT_STATUS;
+import org.corpus_tools.pepper.exceptions.PepperConvertException;
+import org.corpus_tools.peppermodules.treetagger.DocumentWriterPool;
 import org.corpus_tools.peppermodules.treetagger.TreetaggerExporterProperties;
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
@@ -39,9 +49,11 @@ import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
 import org.corpus_tools.salt.SaltFactory;
 import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.SOrderRelation;
 import org.corpus_tools.salt.common.SPointingRelation;
 import org.corpus_tools.salt.common.SSpan;
 import org.corpus_tools.salt.common.SSpanningRelation;
+import org.corpus_tools.salt.common.SStructuredNode;
 import org.corpus_tools.salt.common.STextualDS;
 import org.corpus_tools.salt.common.STextualRelation;
 import org.corpus_tools.salt.common.SToken;
@@ -498,4 +510,173 @@ public class Salt2TreetaggerMapperTest {
 		this.testAddTokens();
 	}
 
+	@Test
+	public void whenIndexingSpansOfGraph_thenTableShouldBeCreatedOnceAndHoldSpansInRelationOrder() {
+		SDocumentGraph sDocGraph = this.createSDocument().getDocumentGraph();
+
+		Map<SToken, List<SSpan>> token2SpansTable = getFixture().getToken2SpansTable(sDocGraph);
+
+		assertSame(token2SpansTable, getFixture().getToken2SpansTable(sDocGraph));
+		int numOfEntries = 0;
+		for (List<SSpan> sSpans : token2SpansTable.values()) {
+			numOfEntries += sSpans.size();
+		}
+		assertEquals(sDocGraph.getSpanningRelations().size(), numOfEntries);
+		for (SSpanningRelation spanRel : sDocGraph.getSpanningRelations()) {
+			assertTrue(token2SpansTable.get(spanRel.getTarget()).contains(spanRel.getSource()));
+		}
+	}
+
+	@Test
+	public void whenTokenHasPOSAnnotationAfterAnnotationNamedPOS_thenPOSAnnotationShouldBeUsed() {
+		SToken sToken = SaltFactory.createSToken();
+		sToken.createAnnotation("a", "pos", "byName");
+		SPOSAnnotation posAnno = SaltFactory.createSPOSAnnotation();
+		posAnno.setValue("byClass");
+		sToken.addAnnotation(posAnno);
+		sToken.createAnnotation("b", "lemma", "lemma");
+		Token tToken = TreetaggerFactory.eINSTANCE.createToken();
+
+		getFixture().addTokenAnnotations(sToken, tToken);
+
+		assertEquals("byClass", tToken.getPosAnnotation().getValue());
+		assertEquals("lemma", tToken.getLemmaAnnotation().getValue());
+		assertEquals(3, tToken.getAnnotations().size());
+	}
+
+	/**
+	 * Annotations named like the POS annotation are passed after the other
+	 * annotations in the order of the token, so the first one becomes the POS
+	 * annotation and the second one is the last additional column.
+	 */
+	@Test
+	public void whenTokenHasTwoAnnotationsNamedPOS_thenTheyShouldFollowTheOtherAnnotationsInTheirOrder() {
+		SToken sToken = SaltFactory.createSToken();
+		sToken.createAnnotation("a", "pos", "a");
+		sToken.createAnnotation(null, "other", "other");
+		sToken.createAnnotation("b", "pos", "b");
+		List<String> posValues = new ArrayList<>();
+		for (SAnnotation sAnno : sToken.getAnnotations()) {
+			if ("pos".equals(sAnno.getName())) {
+				posValues.add(sAnno.getValue_STEXT());
+			}
+		}
+		Token tToken = TreetaggerFactory.eINSTANCE.createToken();
+
+		getFixture().addTokenAnnotations(sToken, tToken);
+
+		assertEquals(3, tToken.getAnnotations().size());
+		assertEquals("other", tToken.getAnnotations().get(0).getValue());
+		assertTrue(tToken.getAnnotations().get(1) instanceof POSAnnotation);
+		assertEquals(posValues.get(0), tToken.getAnnotations().get(1).getValue());
+		assertFalse(tToken.getAnnotations().get(2) instanceof POSAnnotation);
+		assertEquals("pos", tToken.getAnnotations().get(2).getName());
+		assertEquals(posValues.get(1), tToken.getAnnotations().get(2).getValue());
+	}
+
+	@Test
+	public void whenSegmentationIsSet_thenTokensShouldBeTakenAlongTheChain() {
+		SDocumentGraph sDocGraph = SaltFactory.createSDocumentGraph();
+		STextualDS sTextualDS = sDocGraph.createTextualDS("a b c d e");
+		List<SToken> sTokens = new ArrayList<SToken>();
+		for (int i = 0; i < 5; i++) {
+			sTokens.add(sDocGraph.createToken(sTextualDS, 2 * i, 2 * i + 1));
+		}
+		SSpan first = sDocGraph.createSpan(sTokens.get(1), sTokens.get(0));
+		SSpan second = sDocGraph.createSpan(sTokens.get(2), sTokens.get(3));
+		createOrderRelation(sDocGraph, first, second, "norm");
+		createOrderRelation(sDocGraph, second, sTokens.get(4), "norm");
+		createOrderRelation(sDocGraph, sTokens.get(0), sTokens.get(4), "other");
+		getFixture().getProperties().setPropertyValue(TreetaggerExporterProperties.PROP_SEG_NAME, "norm");
+
+		assertEquals(sTokens, getFixture().getRelevantTokens(sDocGraph));
+	}
+
+	private static void createOrderRelation(SDocumentGraph sDocGraph, SStructuredNode source, SStructuredNode target,
+			String type) {
+		SOrderRelation orderRel = SaltFactory.createSOrderRelation();
+		orderRel.setSource(source);
+		orderRel.setTarget(target);
+		orderRel.setType(type);
+		sDocGraph.addRelation(orderRel);
+	}
+
+	@Test
+	public void whenNoTreetaggerDocumentIsSet_thenGraphShouldBeWrittenLikeTheTreetaggerDocument() throws IOException {
+		SDocument sDoc = this.createSDocument();
+		File dir = Files.createTempDirectory("treetaggerModule_exportTest").toFile();
+		dir.deleteOnExit();
+		File twoPhaseFile = new File(dir, "twoPhase.tt");
+		twoPhaseFile.deleteOnExit();
+		File streamedFile = new File(dir, "streamed.tt");
+		streamedFile.deleteOnExit();
+
+		getFixture().setDocument(sDoc);
+		getFixture().setTTDocument(TreetaggerFactory.eINSTANCE.createDocument());
+		getFixture().setResourceURI(URI.createFileURI(twoPhaseFile.getAbsolutePath()));
+		getFixture().mapSDocument();
+		setUp();
+		getFixture().setDocument(sDoc);
+		getFixture().setResourceURI(URI.createFileURI(streamedFile.getAbsolutePath()));
+		getFixture().mapSDocument();
+
+		assertNull(getFixture().getTTDocument());
+		assertEquals(new String(Files.readAllBytes(twoPhaseFile.toPath()), StandardCharsets.UTF_8),
+				new String(Files.readAllBytes(streamedFile.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void whenWriterPoolIsSet_thenDocumentShouldBeWrittenByThePool() throws IOException {
+		SDocument sDoc = this.createSDocument();
+		File dir = Files.createTempDirectory("treetaggerModule_exportTest").toFile();
+		dir.deleteOnExit();
+		File directFile = new File(dir, "direct.tt");
+		directFile.deleteOnExit();
+		File pooledFile = new File(dir, "pooled.tt");
+		pooledFile.deleteOnExit();
+		getFixture().setDocument(sDoc);
+		getFixture().setResourceURI(URI.createFileURI(directFile.getAbsolutePath()));
+		getFixture().mapSDocument();
+
+		setUp();
+		DocumentWriterPool writerPool = new DocumentWriterPool(1, 16);
+		getFixture().setWriterPool(writerPool);
+		getFixture().setDocument(sDoc);
+		getFixture().setResourceURI(URI.createFileURI(pooledFile.getAbsolutePath()));
+		DOCUMENT_STATUS status = getFixture().mapSDocument();
+
+		assertEquals(DOCUMENT_STATUS.COMPLETED, status);
+		assertEquals(new String(Files.readAllBytes(directFile.toPath()), StandardCharsets.UTF_8),
+				new String(Files.readAllBytes(pooledFile.toPath()), StandardCharsets.UTF_8));
+		writerPool.shutdown();
+	}
+
+	/**
+	 * The mapper waits for the writer pool, so a document, which cannot be
+	 * written, is not completed, but fails with the error of the writer.
+	 */
+	@Test
+	public void whenWriterPoolCannotWriteDocument_thenMappingShouldFailWithTheError() throws IOException {
+		SDocument sDoc = this.createSDocument();
+		File dir = Files.createTempDirectory("treetaggerModule_exportTest").toFile();
+		dir.deleteOnExit();
+		File missingFile = new File(new File(dir, "missing"), "pooled.tt");
+		DocumentWriterPool writerPool = new DocumentWriterPool(1, 16);
+		getFixture().setWriterPool(writerPool);
+		getFixture().setDocument(sDoc);
+		getFixture().setResourceURI(URI.createFileURI(missingFile.getAbsolutePath()));
+
+		DOCUMENT_STATUS status = null;
+		try {
+			status = getFixture().mapSDocument();
+			fail("Mapping returned " + status + " although the document was not written.");
+		} catch (PepperConvertException e) {
+			assertTrue(e.getMessage().contains(sDoc.getId()));
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertNull(status);
+		assertFalse(missingFile.exists());
+		writerPool.shutdown();
+	}
+
 }
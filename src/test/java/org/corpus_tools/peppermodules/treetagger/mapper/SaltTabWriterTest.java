@@ -0,0 +1,72 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.corpus_tools.peppermodules.treetagger.TreetaggerExporterProperties;
+import org.corpus_tools.salt.SaltFactory;
+import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.STextualDS;
+import org.corpus_tools.salt.common.STextualRelation;
+import org.corpus_tools.salt.common.SToken;
+import org.corpus_tools.salt.core.SMetaAnnotation;
+import org.corpus_tools.salt.core.SRelation;
+import org.junit.Test;
+
+public class SaltTabWriterTest {
+
+	/**
+	 * The token text is written from the primary text without a substring,
+	 * which must give the same bytes for tokens in the middle of the text,
+	 * empty tokens and characters outside the basic multilingual plane.
+	 */
+	@Test
+	public void whenWritingTokenTexts_thenOutputShouldEqualTheSubstringsOfTheText() throws IOException {
+		SDocumentGraph graph = SaltFactory.createSDocumentGraph();
+		STextualDS text = graph.createTextualDS("vor 𝄞 mitte nach");
+		graph.createToken(text, 0, 3);
+		graph.createToken(text, 4, 6);
+		graph.createToken(text, 6, 6);
+		graph.createToken(text, 7, 12);
+		graph.createToken(text, 13, 17);
+		Salt2TreetaggerMapper mapper = new Salt2TreetaggerMapper();
+		mapper.setProperties(new TreetaggerExporterProperties());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		new SaltTabWriter(mapper).save(graph, Collections.<SMetaAnnotation> emptySet(), out, null);
+
+		StringBuilder expected = new StringBuilder();
+		for (SToken sToken : mapper.getRelevantTokens(graph)) {
+			for (SRelation<?, ?> rel : sToken.getOutRelations()) {
+				if (rel instanceof STextualRelation) {
+					STextualRelation sTextRel = (STextualRelation) rel;
+					expected.append(sTextRel.getTarget().getText().substring(sTextRel.getStart(), sTextRel.getEnd()))
+							.append("\t\t\n");
+				}
+			}
+		}
+		assertThat(expected.toString()).contains("𝄞\t\t\n\t\t\nmitte\t\t\n");
+		assertThat(out.toByteArray()).isEqualTo(expected.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class StringReplacerTest {
+
+	@Test
+	public void whenNothingMatches_thenSameInstanceShouldBeReturned() {
+		final StringReplacer replacer = StringReplacer.compile(mapping("&amp;", "&"));
+		final String value = new String("a & b");
+
+		assertThat(replacer.replace(value)).isSameAs(value);
+	}
+
+	@Test
+	public void whenPatternsOverlap_thenLongestMatchShouldBeReplaced() {
+		final StringReplacer replacer = StringReplacer.compile(mapping("a", "1", "ab", "2", "abc", "3"));
+
+		assertThat(replacer.replace("abcaba")).isEqualTo("321");
+	}
+
+	@Test
+	public void whenReplacementContainsPattern_thenItShouldNotBeReplacedAgain() {
+		final StringReplacer replacer = StringReplacer.compile(mapping("a", "b", "b", "c"));
+
+		assertThat(replacer.replace("ab")).isEqualTo("bc");
+	}
+
+	@Test
+	public void whenReplacingNonAsciiPatterns_thenTheyShouldBeReplaced() {
+		final StringReplacer replacer = StringReplacer.compile(mapping("ä", "ae", "ß", "ss"));
+
+		assertThat(replacer.replace("Straße ändern")).isEqualTo("Strasse aendern");
+	}
+
+	@Test
+	public void whenMappingHasOnlyEmptyPatterns_thenNoReplacerShouldBeCompiled() {
+		assertThat(StringReplacer.compile(mapping("", "x"))).isNull();
+		assertThat(StringReplacer.compile(null)).isNull();
+	}
+
+	private static Map<String, String> mapping(String... patternsAndReplacements) {
+		final Map<String, String> mapping = new HashMap<>();
+		for (int i = 0; i < patternsAndReplacements.length; i += 2) {
+			mapping.put(patternsAndReplacements[i], patternsAndReplacements[i + 1]);
+		}
+		return mapping;
+	}
+}
@@ -19,11 +19,16 @@ package org.corpus_tools.peppermodules.treetagger.mapper;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Set;
 
 import org.corpus_tools.pepper.modules.PepperModuleProperty;
+import org.corpus_tools.pepper.modules.exceptions.PepperModuleDataException;
 import org.corpus_tools.peppermodules.treetagger.TreetaggerImporterProperties;
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
@@ -32,9 +37,12 @@ import org.corpus_tools.peppermodules.treetagger.model.POSAnnotation;
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
 import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.corpus_tools.peppermodules.treetagger.model.impl.SpanImpl;
 import org.corpus_tools.salt.SaltFactory;
 import org.corpus_tools.salt.common.SDocument;
 import org.corpus_tools.salt.common.SDocumentGraph;
+import org.corpus_tools.salt.common.SPointingRelation;
+import org.corpus_tools.salt.common.SSpan;
 import org.corpus_tools.salt.common.STextualRelation;
 import org.corpus_tools.salt.common.SToken;
 import org.corpus_tools.salt.core.SMetaAnnotation;
@@ -275,6 +283,257 @@ public class Treetagger2SaltMapperTest {
 				getFixture().getDocument().getDocumentGraph().getTextualDSs().get(0).getText());
 	}
 
+	@Test
+	public void whenMakingPointingRelations_thenRelationShouldPointFromTargetToReferringSpan() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		Span head = createPointingSpan(doc, "1", null, null);
+		createPointingSpan(doc, "2", "#1", "subj");
+		setMakePointingRelations();
+
+		map(doc);
+
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		assertEquals(1, graph.getPointingRelations().size());
+		SPointingRelation rel = graph.getPointingRelations().get(0);
+		assertEquals(head.getTokens().get(0).getText(), graph.getText(graph.getOverlappedTokens(rel.getSource()).get(0)));
+		assertEquals("dep", rel.getType());
+		assertEquals("dep", rel.getLayers().iterator().next().getName());
+		assertTrue(rel.getLayers().iterator().next().getRelations().contains(rel));
+		assertEquals("subj", rel.getAnnotation("dep", "func").getValue_STEXT());
+		// id, head and func only encode the relation and are suppressed by default
+		assertEquals(0, rel.getSource().getAnnotations().size());
+		assertEquals(0, rel.getTarget().getAnnotations().size());
+	}
+
+	@Test
+	public void whenPointingRelationTargetsAreMissing_thenAllShouldBeReported() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		createPointingSpan(doc, "1", "7", null);
+		createPointingSpan(doc, "2", "8", null);
+		setMakePointingRelations();
+
+		try {
+			map(doc);
+			fail("missing targets should be reported");
+		} catch (PepperModuleDataException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("head=7"));
+			assertTrue(e.getMessage(), e.getMessage().contains("head=8"));
+		}
+	}
+
+	@Test
+	public void whenSeparatingSpanAnnotations_thenClonesShouldSpanSameTokens() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		span.setName("ent");
+		span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("a", "1"));
+		span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("b", "2"));
+		span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("c", "3"));
+		for (String text : new String[] { "New", "York" }) {
+			Token token = TreetaggerFactory.eINSTANCE.createToken();
+			token.setText(text);
+			token.getSpans().add(span);
+			span.getTokens().add(token);
+			doc.getTokens().add(token);
+		}
+		PepperModuleProperty<String> prop = (PepperModuleProperty<String>) getFixture().getProperties()
+				.getProperty(TreetaggerImporterProperties.PROP_SEPARATE_SPAN_ANNOS);
+		prop.setValue("a,b");
+
+		map(doc);
+
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		assertEquals(3, graph.getSpans().size());
+		Set<String> names = new HashSet<>();
+		for (SSpan sSpan : graph.getSpans()) {
+			names.add(sSpan.getName());
+			assertEquals(1, sSpan.getAnnotations().size());
+			assertEquals(new HashSet<>(graph.getTokens()), new HashSet<>(graph.getOverlappedTokens(sSpan)));
+		}
+		assertEquals(new HashSet<>(Arrays.asList("ent", "ent_1", "ent_2")), names);
+		assertEquals("c", graph.getSpans().get(0).getAnnotations().iterator().next().getName());
+	}
+
+	@Test
+	public void whenReplacingInTokensAndAnnotations_thenAllOccurrencesShouldBeReplaced() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		Token token = TreetaggerFactory.eINSTANCE.createToken();
+		token.setText("a&amp;b&lt;");
+		token.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("pos", "&lt;&amp;"));
+		doc.getTokens().add(token);
+		PepperModuleProperty<String> prop = (PepperModuleProperty<String>) getFixture().getProperties()
+				.getProperty(TreetaggerImporterProperties.PROP_TOKEN_REPLACEMENTS);
+		prop.setValue("\"&amp;\":\"&\", \"&lt;\":\"<\"");
+
+		map(doc);
+
+		SToken sToken = getFixture().getDocument().getDocumentGraph().getTokens().get(0);
+		assertEquals("a&b<", getFixture().getDocument().getDocumentGraph().getText(sToken));
+		assertEquals("<&", sToken.getAnnotations().iterator().next().getValue_STEXT());
+	}
+
+	/**
+	 * The text is assembled from all tokens and each token refers to its own
+	 * part of the text.
+	 */
+	@Test
+	public void whenMappingManyTokens_thenEachTokenShouldReferToItsText() {
+		final int numOfTokens = 1000;
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		StringBuilder expectedText = new StringBuilder();
+		for (int tokenIndex = 0; tokenIndex < numOfTokens; tokenIndex++) {
+			Token token = TreetaggerFactory.eINSTANCE.createToken();
+			token.setText("token" + tokenIndex);
+			doc.getTokens().add(token);
+			expectedText.append(tokenIndex > 0 ? " " : "").append(token.getText());
+		}
+
+		map(doc);
+
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		assertEquals(expectedText.toString(), graph.getTextualDSs().get(0).getText());
+		assertEquals(numOfTokens, graph.getTokens().size());
+		compareTokens(doc.getTokens(), graph);
+	}
+
+	/**
+	 * Spans are looked up by their ids, so mapping a long span neither hashes
+	 * nor compares it and does not walk its tokens.
+	 */
+	@Test
+	public void whenMappingLongSpan_thenSpanShouldBeLookedUpById() {
+		final int numOfTokens = 1000;
+		final int[] numOfLookups = new int[1];
+		Span span = new SpanImpl() {
+			@Override
+			public List<Token> getTokens() {
+				numOfLookups[0]++;
+				return super.getTokens();
+			}
+
+			@Override
+			public int hashCode() {
+				numOfLookups[0]++;
+				return super.hashCode();
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				numOfLookups[0]++;
+				return super.equals(obj);
+			}
+		};
+		span.setName("p");
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		for (int tokenIndex = 0; tokenIndex < numOfTokens; tokenIndex++) {
+			Token token = TreetaggerFactory.eINSTANCE.createToken();
+			token.setText("token" + tokenIndex);
+			doc.getTokens().add(token);
+			token.getSpans().add(span);
+		}
+
+		map(doc);
+
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		assertEquals(1, graph.getSpans().size());
+		assertEquals(numOfTokens, graph.getSpanningRelations().size());
+		assertEquals(0, numOfLookups[0]);
+	}
+
+	/**
+	 * Spans with the same name and tokens are equal, but must be mapped to
+	 * different {@link SSpan}s.
+	 */
+	@Test
+	public void whenMappingEqualSpans_thenEachSpanShouldBeMapped() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		Token token = TreetaggerFactory.eINSTANCE.createToken();
+		token.setText("nested");
+		doc.getTokens().add(token);
+		for (int spanIndex = 0; spanIndex < 2; spanIndex++) {
+			Span span = TreetaggerFactory.eINSTANCE.createSpan();
+			span.setName("s");
+			span.getTokens().add(token);
+			token.getSpans().add(span);
+		}
+		getFixture().setTTDocument(doc);
+		getFixture().setDocument(SaltFactory.createSDocument());
+
+		getFixture().mapSDocument();
+
+		assertEquals(2, getFixture().getDocument().getDocumentGraph().getSpans().size());
+	}
+
+	/**
+	 * Spans with a namespace are added to the graph and to their layer exactly
+	 * once and get generated ids, even when they share their names.
+	 */
+	@Test
+	public void whenMappingNamespacedSpans_thenEachSpanShouldBeAddedOnce() {
+		Document doc = TreetaggerFactory.eINSTANCE.createDocument();
+		for (String text : new String[] { "a", "b" }) {
+			Token token = TreetaggerFactory.eINSTANCE.createToken();
+			token.setText(text);
+			doc.getTokens().add(token);
+			Span span = TreetaggerFactory.eINSTANCE.createSpan();
+			span.setName("x:np");
+			span.getTokens().add(token);
+			token.getSpans().add(span);
+		}
+
+		map(doc);
+
+		SDocumentGraph graph = getFixture().getDocument().getDocumentGraph();
+		assertEquals(5, graph.getNodes().size());
+		assertEquals(4, graph.getRelations().size());
+		assertEquals(2, graph.getSpans().size());
+		assertEquals("sSpan1", graph.getSpans().get(0).getPath().fragment());
+		assertEquals("sSpan2", graph.getSpans().get(1).getPath().fragment());
+		assertEquals("x:np", graph.getSpans().get(1).getName());
+		assertEquals(1, graph.getLayers().size());
+		assertEquals(new HashSet<>(graph.getSpans()), graph.getLayers().iterator().next().getNodes());
+	}
+
+	/**
+	 * Adds a token with a span, which is annotated with the given id, target
+	 * and edge annotation, if they are not null.
+	 */
+	private Span createPointingSpan(Document doc, String id, String head, String func) {
+		Token token = TreetaggerFactory.eINSTANCE.createToken();
+		token.setText("token" + id);
+		doc.getTokens().add(token);
+		Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		span.setName("ref");
+		span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("id", id));
+		if (head != null) {
+			span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("head", head));
+		}
+		if (func != null) {
+			span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("func", func));
+		}
+		span.getTokens().add(token);
+		token.getSpans().add(span);
+		return span;
+	}
+
+	private void setMakePointingRelations() {
+		PepperModuleProperty<Boolean> prop = (PepperModuleProperty<Boolean>) getFixture().getProperties()
+				.getProperty(TreetaggerImporterProperties.PROP_MAKE_POINTING_RELATIONS);
+		prop.setValue(true);
+	}
+
+	/**
+	 * Maps the document with a new fixture.
+	 */
+	private void map(Document doc) {
+		Treetagger2SaltMapper mapper = new Treetagger2SaltMapper();
+		mapper.setProperties(getFixture().getProperties());
+		mapper.setTTDocument(doc);
+		mapper.setDocument(SaltFactory.createSDocument());
+		mapper.mapSDocument();
+		setFixture(mapper);
+	}
+
 	/**
 	 * compares the texts of tokens and calls the method for the comparison of
 	 * the token annotations
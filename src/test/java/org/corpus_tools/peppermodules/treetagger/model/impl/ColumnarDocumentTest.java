@@ -0,0 +1,144 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.AnyAnnotation;
+import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarDocumentTest {
+	private ColumnarDocument.Builder builder;
+	private final List<Span> openSpans = new ArrayList<>();
+
+	@Before
+	public void beforeEach() {
+		builder = new ColumnarDocument.Builder();
+		openSpans.clear();
+	}
+
+	@Test
+	public void whenBuildingTokensWithoutSpans_thenViewsShouldReturnColumns() {
+		addToken("The", "DT", "the");
+		addToken("tree", "NN", "tree", "extra");
+
+		final Document document = build();
+
+		assertThat(document.getTokens()).hasSize(2);
+		final Token tree = document.getTokens().get(1);
+		assertThat(tree.getText()).isEqualTo("tree");
+		assertThat(tree.getId()).isEqualTo(1);
+		assertThat(tree.getSpans()).isEmpty();
+		assertThat(tree.getPosAnnotation().getValue()).isEqualTo("NN");
+		assertThat(tree.getLemmaAnnotation().getValue()).isEqualTo("tree");
+		assertThat(tree.getAnnotations()).hasSize(3);
+		assertThat(tree.getAnnotations().get(2)).isInstanceOf(AnyAnnotation.class);
+		assertThat(document.getTokens().get(0).getAnnotations()).hasSize(2);
+		assertThat(document.getTokens().get(0)).isEqualTo(document.getTokens().get(0));
+	}
+
+	@Test
+	public void whenChangingViews_thenDocumentShouldBeChanged() {
+		addToken("a&amp;b", "NN", "a&amp;b");
+		final Document document = build();
+
+		document.getTokens().get(0).setText("a&b");
+		document.getTokens().get(0).getLemmaAnnotation().setValue("new");
+
+		assertThat(document.getTokens().get(0).getText()).isEqualTo("a&b");
+		assertThat(document.getTokens().get(0).getLemmaAnnotation().getValue()).isEqualTo("new");
+		assertThat(document.getTokens().get(0).getPosAnnotation().getValue()).isEqualTo("NN");
+	}
+
+	@Test
+	public void whenBuildingNestedSpans_thenMostRecentlyStartedSpanShouldComeFirst() {
+		final Span outer = startSpan("s", 0);
+		addToken("The", "DT");
+		final Span inner = startSpan("np", 1);
+		addToken("tree", "NN");
+		endSpan(inner);
+		final Span discarded = startSpan("empty", 2);
+		builder.discardSpan(discarded);
+		openSpans.remove(discarded);
+		addToken(".", "SENT");
+		endSpan(outer);
+
+		final Document document = build();
+
+		final Token tree = document.getTokens().get(1);
+		assertThat(tree.getSpans()).extracting("name", "id").containsExactly(
+				tuple("np", 1), tuple("s", 0));
+		assertThat(document.getTokens().get(2).getSpans()).extracting("name").containsExactly("s");
+		final Span s = tree.getSpans().get(1);
+		assertThat(s).isSameAs(document.getTokens().get(0).getSpans().get(0));
+		assertThat(s.getTokens()).extracting("text").containsExactly("The", "tree", ".");
+		assertThat(s.getAnnotations()).extracting("value").containsExactly("0");
+	}
+
+	@Test
+	public void whenEnsuringIdsOfColumnarDocument_thenIdsShouldBeKept() {
+		final Span span = startSpan("s", 2);
+		addToken("a", "DT");
+		addToken("b", "NN");
+		endSpan(span);
+		final Document document = build();
+
+		assertThat(Treetagger.ensureIds(document.getTokens())).isEqualTo(3);
+		assertThat(document.getTokens().get(1).getSpans().get(0).getId()).isEqualTo(2);
+	}
+
+	private Document build() {
+		final Document template = TreetaggerFactory.eINSTANCE.createDocument();
+		template.setName("doc");
+		return builder.build(template);
+	}
+
+	private Span startSpan(String name, int id) {
+		final Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		span.setName(name);
+		span.setId(id);
+		span.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("id", Integer.toString(id)));
+		builder.startSpan(span);
+		openSpans.add(0, span);
+		return span;
+	}
+
+	private void endSpan(Span span) {
+		builder.endSpan(span);
+		openSpans.remove(span);
+	}
+
+	private void addToken(String text, String... values) {
+		final String[] names = { "pos", "lemma", "anyAnno" };
+		final Treetagger.TokenBuilder token = Treetagger.buildToken().withText(text).withLine(1);
+		for (int column = 0; column < values.length; column++) {
+			token.withAnnotation(names[column], values[column]);
+		}
+		builder.addToken(token.build(), Collections.unmodifiableList(openSpans));
+	}
+}
@@ -17,7 +17,7 @@
  */
 package org.corpus_tools.peppermodules.treetagger.model.impl;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.corpus_tools.peppermodules.treetagger.model.Annotation;
 import org.corpus_tools.peppermodules.treetagger.model.Document;
@@ -28,14 +28,13 @@ import org.junit.Test;
 public class DocumentTest {
 
 	/**
-	 * Tests equals method for Documents. The name field is not subject to
-	 * equality.
+	 * Tests structural equality for Documents.
 	 */
 	@Test
-	public void testEquals() {
+	public void testStructurallyEquals() {
 		Document document1 = TreetaggerFactory.eINSTANCE.createDocument();
 		Document document2 = TreetaggerFactory.eINSTANCE.createDocument();
-		assertEquals(document1, document2);
+		assertTrue(document1.structurallyEquals(document2));
 
 		Document[] docArray = { document1, document2 };
 
@@ -53,7 +52,7 @@ public class DocumentTest {
 			}
 		}
 
-		assertEquals(document1, document2);
+		assertTrue(document1.structurallyEquals(document2));
 	}
 
 } // DocumentTest
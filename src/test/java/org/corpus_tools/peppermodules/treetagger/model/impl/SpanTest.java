@@ -18,8 +18,12 @@
 package org.corpus_tools.peppermodules.treetagger.model.impl;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
 
 import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
@@ -27,25 +31,39 @@ import org.junit.Test;
 
 public class SpanTest {
 	/**
-	 * Tests equals method for Span.
+	 * Tests structural equality for Span.
 	 */
 	@Test
-	public void testEquals() {
-		Span span1 = null;
-		Span span2 = null;
-		assertEquals(span1, span2);
-
-		span1 = TreetaggerFactory.eINSTANCE.createSpan();
-		assertNotSame(span1, span2);
-		span2 = TreetaggerFactory.eINSTANCE.createSpan();
-		assertEquals(span1, span2);
+	public void testStructurallyEquals() {
+		Span span1 = TreetaggerFactory.eINSTANCE.createSpan();
+		assertFalse(span1.structurallyEquals(null));
+		Span span2 = TreetaggerFactory.eINSTANCE.createSpan();
+		assertTrue(span1.structurallyEquals(span2));
 
 		assertNull(span1.getName());
 		assertNull(span2.getName());
 		span1.setName("spanName");
-		assertNotSame(span1, span2);
+		assertFalse(span1.structurallyEquals(span2));
+		span2.setName("spanName");
+		assertTrue(span1.structurallyEquals(span2));
+	}
+
+	/**
+	 * Spans with equal content are still different keys.
+	 */
+	@Test
+	public void whenSpansHaveEqualContent_thenTheyShouldNotBeEqual() {
+		Span span1 = TreetaggerFactory.eINSTANCE.createSpan();
+		span1.setName("spanName");
+		Span span2 = TreetaggerFactory.eINSTANCE.createSpan();
 		span2.setName("spanName");
-		assertEquals(span1, span2);
+
+		assertFalse(span1.equals(span2));
+		assertEquals(span1, span1);
+		Set<Span> spans = new HashSet<>();
+		spans.add(span1);
+		spans.add(span2);
+		assertEquals(2, spans.size());
 	}
 
 } // SpanTest
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.corpus_tools.peppermodules.treetagger.model.Annotation;
+import org.junit.Test;
+
+public class StringPoolTest {
+
+	@Test
+	public void whenInterningEqualStrings_thenFirstInstanceShouldBeReturned() {
+		final StringPool pool = new StringPool();
+		final String first = new String("NN");
+
+		assertThat(pool.intern(first)).isSameAs(first);
+		assertThat(pool.intern(new String("NN"))).isSameAs(first);
+		assertThat(pool.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenPoolIsFull_thenNewStringsShouldNotBePooled() {
+		final StringPool pool = new StringPool(2);
+		final String nn = pool.intern(new String("NN"));
+		pool.intern("VBZ");
+		final String lemma = new String("tree");
+
+		assertThat(pool.intern(lemma)).isSameAs(lemma);
+		assertThat(pool.intern(new String("tree"))).isNotSameAs(lemma);
+		assertThat(pool.intern(new String("NN"))).isSameAs(nn);
+		assertThat(pool.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void whenCreatingAnnotationWithPool_thenNameAndValueShouldBePooled() {
+		final StringPool pool = new StringPool();
+		final String name = pool.intern(new String("morph"));
+		final String value = pool.intern(new String("sg"));
+
+		final Annotation annotation = TreetaggerFactoryImpl.init()
+				.createAnnotation(new String("morph"), new String("sg"), pool);
+
+		assertThat(annotation.getName()).isSameAs(name);
+		assertThat(annotation.getValue()).isSameAs(value);
+	}
+}
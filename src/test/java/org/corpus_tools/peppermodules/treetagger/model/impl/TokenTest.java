@@ -18,8 +18,10 @@
 package org.corpus_tools.peppermodules.treetagger.model.impl;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.corpus_tools.peppermodules.treetagger.model.LemmaAnnotation;
 import org.corpus_tools.peppermodules.treetagger.model.POSAnnotation;
@@ -62,21 +64,46 @@ public class TokenTest {
 	}
 
 	@Test
-	public void testEquals() {
-		Token token1 = null;
-		Token token2 = null;
-		assertEquals(token1, token2);
+	public void whenChangingAnnotationList_thenPosAndLemmaShouldBeLastOfList() {
+		POSAnnotation pos1 = TreetaggerFactory.eINSTANCE.createPOSAnnotation();
+		POSAnnotation pos2 = TreetaggerFactory.eINSTANCE.createPOSAnnotation();
+		LemmaAnnotation lemma = TreetaggerFactory.eINSTANCE.createLemmaAnnotation();
+		fixture.getAnnotations().add(pos1);
+		fixture.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("morph", "sg"));
+		fixture.getAnnotations().add(lemma);
+		assertSame(pos1, fixture.getPosAnnotation());
+		assertSame(lemma, fixture.getLemmaAnnotation());
 
-		token1 = TreetaggerFactory.eINSTANCE.createToken();
-		assertNotSame(token1, token2);
-		token2 = TreetaggerFactory.eINSTANCE.createToken();
-		assertEquals(token1, token2);
+		fixture.getAnnotations().add(0, pos2);
+		assertSame(pos1, fixture.getPosAnnotation());
+
+		fixture.getAnnotations().remove(1);
+		assertSame(pos2, fixture.getPosAnnotation());
+
+		fixture.getAnnotations().set(2, TreetaggerFactory.eINSTANCE.createAnnotation("morph", "pl"));
+		assertNull(fixture.getLemmaAnnotation());
+
+		fixture.getAnnotations().clear();
+		assertNull(fixture.getPosAnnotation());
+	}
+
+	@Test
+	public void testStructurallyEquals() {
+		Token token1 = TreetaggerFactory.eINSTANCE.createToken();
+		assertFalse(token1.structurallyEquals(null));
+		Token token2 = TreetaggerFactory.eINSTANCE.createToken();
+		assertTrue(token1.structurallyEquals(token2));
+		assertFalse(token1.equals(token2));
 
 		assertNull(token1.getText());
 		assertNull(token2.getText());
 		token1.setText("tokenText");
-		assertNotSame(token1, token2);
+		assertFalse(token1.structurallyEquals(token2));
 		token2.setText("tokenText");
-		assertEquals(token1, token2);
+		assertTrue(token1.structurallyEquals(token2));
+
+		token1.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("pos", "NN"));
+		token2.getAnnotations().add(TreetaggerFactory.eINSTANCE.createAnnotation("morph", "NN"));
+		assertFalse(token1.structurallyEquals(token2));
 	}
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.junit.Test;
+
+public class TreetaggerTest {
+
+	@Test
+	public void whenEnsuringIdsOfTokensWithoutIds_thenIdsShouldBeAssignedInOrder() {
+		final Token first = Treetagger.buildToken().withText("a").build();
+		final Token second = Treetagger.buildToken().withText("b").build();
+		final Span outer = createSpan(first, second);
+		final Span inner = createSpan(second);
+
+		final int numOfSpanIds = Treetagger.ensureIds(Arrays.asList(first, second));
+
+		assertThat(numOfSpanIds).isEqualTo(2);
+		assertThat(first.getId()).isEqualTo(0);
+		assertThat(second.getId()).isEqualTo(1);
+		assertThat(outer.getId()).isEqualTo(0);
+		assertThat(inner.getId()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenEnsuringValidIds_thenIdsShouldBeKept() {
+		final Token first = Treetagger.buildToken().withText("a").build();
+		final Span span = createSpan(first);
+		first.setId(0);
+		span.setId(1);
+
+		assertThat(Treetagger.ensureIds(Arrays.asList(first))).isEqualTo(2);
+		assertThat(span.getId()).isEqualTo(1);
+	}
+
+	@Test
+	public void whenEnsuringDuplicateSpanIds_thenIdsShouldBeAssignedAgain() {
+		final Token first = Treetagger.buildToken().withText("a").build();
+		final Token second = Treetagger.buildToken().withText("b").build();
+		final Span span1 = createSpan(first);
+		final Span span2 = createSpan(second);
+		first.setId(0);
+		second.setId(1);
+		span1.setId(0);
+		span2.setId(0);
+		final List<Token> tokens = Arrays.asList(first, second);
+
+		assertThat(Treetagger.ensureIds(tokens)).isEqualTo(2);
+		assertThat(span1.getId()).isEqualTo(0);
+		assertThat(span2.getId()).isEqualTo(1);
+	}
+
+	private Span createSpan(Token... tokens) {
+		final Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		for (Token token : tokens) {
+			span.getTokens().add(token);
+			token.getSpans().add(span);
+		}
+		return span;
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.corpus_tools.peppermodules.treetagger.model.Span;
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.junit.Test;
+
+public class SpanEventsTest {
+
+	private static List<Token> createTokens(int numOfTokens) {
+		final List<Token> tokens = new ArrayList<>();
+		for (int i = 0; i < numOfTokens; i++) {
+			final Token token = TreetaggerFactory.eINSTANCE.createToken();
+			token.setText("t" + i);
+			tokens.add(token);
+		}
+		return tokens;
+	}
+
+	private static Span createSpan(String name, Token... tokens) {
+		final Span span = TreetaggerFactory.eINSTANCE.createSpan();
+		span.setName(name);
+		for (Token token : tokens) {
+			span.getTokens().add(token);
+			token.getSpans().add(span);
+		}
+		return span;
+	}
+
+	@Test
+	public void whenSpansOverlapTheSameTokens_thenLargerSpansShouldOpenFirstAndCloseLast() {
+		final List<Token> tokens = createTokens(3);
+		final Span small = createSpan("b", tokens.get(0));
+		final Span large = createSpan("c", tokens.get(0), tokens.get(1));
+		final Span sameSize = createSpan("a", tokens.get(0));
+		final SpanEvents<Span> events = SpanEvents.forSpans();
+
+		events.next(tokens.get(0).getSpans());
+		assertThat(events.getOpeningSpans()).containsExactly(large, sameSize, small);
+		events.next(tokens.get(1).getSpans());
+		assertThat(events.getClosingSpans()).containsExactly(small, sameSize);
+		assertThat(events.getOpeningSpans()).isEmpty();
+		events.next(tokens.get(2).getSpans());
+		assertThat(events.getClosingSpans()).containsExactly(large);
+		events.end();
+		assertThat(events.getClosingSpans()).isEmpty();
+	}
+
+	@Test
+	public void whenSpanHasGap_thenItShouldBeReopenedAfterTheGap() {
+		final List<Token> tokens = createTokens(3);
+		final Span span = createSpan("s", tokens.get(0), tokens.get(2));
+		final SpanEvents<Span> events = SpanEvents.forSpans();
+
+		events.next(tokens.get(0).getSpans());
+		assertThat(events.getOpeningSpans()).containsExactly(span);
+		events.next(tokens.get(1).getSpans());
+		assertThat(events.getClosingSpans()).containsExactly(span);
+		events.next(tokens.get(2).getSpans());
+		assertThat(events.getOpeningSpans()).containsExactly(span);
+		events.end();
+		assertThat(events.getClosingSpans()).containsExactly(span);
+	}
+}
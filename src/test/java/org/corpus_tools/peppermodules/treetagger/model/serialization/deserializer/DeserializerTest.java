@@ -18,13 +18,21 @@
 package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.corpus_tools.peppermodules.treetagger.model.Document;
+import org.corpus_tools.peppermodules.treetagger.model.Span;
 import org.corpus_tools.peppermodules.treetagger.model.Token;
-import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.corpus_tools.peppermodules.treetagger.model.impl.ColumnarDocument;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
 import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
 import org.eclipse.emf.common.util.URI;
 import org.junit.Before;
@@ -34,6 +42,17 @@ public class DeserializerTest {
 
 	private Deserializer fixture;
 
+	/**
+	 * Content with several documents, spans crossing lines with different line
+	 * endings, empty and unclosed spans and documents.
+	 */
+	static final String MIXED_CONTENT = "<?xml version=\"1.0\"?>\r\n" + "<meta lang='en'>\n" + "<s id='1'>\r\n"
+			+ "The\tDT\tthe\n" + "<np>\n" + "Tree\u00e4Tagger\tNP\n" + "\n" + "is\tVBZ\tbe\textra\r" + "</np>\r"
+			+ "<empty>\n" + "</empty>\n" + "easy\tJJ\teasy\n" + "</s>\n" + "<open>\n" + ".\tSENT\t.\n"
+			+ "</meta>\n" + " \t \n" + "implicit\tNN\timplicit\n" + "<meta lang='de'>\n" + "<s>\n"
+			+ "Der\tART\tder\n" + "</x>\n" + "Satz\tNN\tSatz\n" + "</s>\n" + "</meta>\n" + "<meta>\n"
+			+ "unclosed\tNN\n" + "last\tNN\tlast";
+
 	@Before
 	public void beforeEach() {
 		fixture = new Deserializer();
@@ -50,59 +69,30 @@ public class DeserializerTest {
 	public void whenTupleHasLessColumnsThanAnnotationOrderList_thenColumnsShallBeListed() {
 		fixture.setColumnNames(Arrays.asList("tok", "pos", "lemma"));
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("The", "DT", "the");
+		fixture.doesTupleHasExpectedNumOfColumns(3);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("TreeTagger", "NP");
+		fixture.doesTupleHasExpectedNumOfColumns(2);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("is", "VBZ");
+		fixture.doesTupleHasExpectedNumOfColumns(2);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("easy", "JJ", "easy ");
+		fixture.doesTupleHasExpectedNumOfColumns(3);
 
-		assertThat(fixture.rowsWithTooLessColumns).containsExactly(2, 3);
+		assertThat(fixture.rowsWithTooLessColumns.toArray()).containsExactly(2, 3);
 	}
 
 	@Test
 	public void whenTupleHasMoreColumnsThanAnnotationOrderList_thenColumnsShallBeListed() {
 		fixture.setColumnNames(Arrays.asList("tok", "pos", "lemma"));
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("The", "DT", "the");
+		fixture.doesTupleHasExpectedNumOfColumns(3);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("TreeTagger", "NP", "TreeTagger", "additionalColumn");
+		fixture.doesTupleHasExpectedNumOfColumns(4);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("is", "VBZ", "be ", "additionalColumn");
+		fixture.doesTupleHasExpectedNumOfColumns(4);
 		fixture.lineNumber++;
-		fixture.doesTupleHasExpectedNumOfColumns("easy", "JJ", "easy ");
+		fixture.doesTupleHasExpectedNumOfColumns(3);
 
-		assertThat(fixture.rowsWithTooMuchColumns).containsExactly(2, 3);
-	}
-
-	@Test
-	public void whenFindingColumnNameForLineNumber_thenReturnCorrectColumnName() {
-		fixture.setColumnNames(Arrays.asList("tok", "pos", "lemma"));
-
-		assertThat(fixture.findColumnName(0)).isEqualTo("tok");
-		assertThat(fixture.findColumnName(1)).isEqualTo("pos");
-		assertThat(fixture.findColumnName(2)).isEqualTo("lemma");
-		assertThat(fixture.findColumnName(3)).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
-	}
-
-	@Test
-	public void whenCreatingAnnotationsForToken_thenTokenShouldContainAllAnnotations() {
-		fixture.setColumnNames(Arrays.asList("tok", "pos", "lemma"));
-		Token token = TreetaggerFactory.eINSTANCE.createToken();
-		String[] tuple = { "TreeTagger", "NP", "TreeTagger", "additionalColumn1", "additionalColumn2" };
-
-		fixture.createAnnotationsForToken(token, tuple);
-
-		assertThat(token.getAnnotations()).hasSize(4);
-		assertThat(token.getAnnotations().get(0).getName()).isEqualTo(Deserializer.COLUMN_POS);
-		assertThat(token.getAnnotations().get(0).getValue()).isEqualTo("NP");
-		assertThat(token.getAnnotations().get(1).getName()).isEqualTo(Deserializer.COLUMN_LEMMA);
-		assertThat(token.getAnnotations().get(1).getValue()).isEqualTo("TreeTagger");
-		assertThat(token.getAnnotations().get(2).getName()).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
-		assertThat(token.getAnnotations().get(2).getValue()).isEqualTo("additionalColumn1");
-		assertThat(token.getAnnotations().get(3).getName()).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
-		assertThat(token.getAnnotations().get(3).getValue()).isEqualTo("additionalColumn2");
+		assertThat(fixture.rowsWithTooMuchColumns.toArray()).containsExactly(2, 3);
 	}
 
 	@Test
@@ -130,7 +120,7 @@ public class DeserializerTest {
 
 		assertThat(actualModels).hasSize(1);
 		final Document actualModel = actualModels.get(0);
-		assertThat(actualModel).isEqualTo(expectedModel);
+		assertThat(actualModel.structurallyEquals(expectedModel)).isTrue();
 	}
 
 	@Test
@@ -175,7 +165,188 @@ public class DeserializerTest {
 		final List<Document> actualModels = Treetagger.deserialize().from(treetaggerFile);
 
 		assertThat(actualModels).hasSize(2);
-		assertThat(actualModels.get(0)).isEqualTo(expectedModel_en);
-		assertThat(actualModels.get(1)).isEqualTo(expectedModel_de);
+		assertThat(actualModels.get(0).structurallyEquals(expectedModel_en)).isTrue();
+		assertThat(actualModels.get(1).structurallyEquals(expectedModel_de)).isTrue();
+	}
+
+	@Test
+	public void whenStreamingTreetaggerFileWithMultipleDocuments_thenListenerShouldReceiveAllEventsInOrder() {
+		final URI treetaggerFile = URI
+				.createFileURI("./src/test/resources/deserializer/fileWithMultipleDocuments/englishGerman.tt");
+		final List<String> events = new ArrayList<>();
+
+		Treetagger.deserialize().from(treetaggerFile, new DeserializerListener() {
+			@Override
+			public void startDocument(Document document) {
+				events.add("<" + document.getAnnotations().get(0).getValue() + ">");
+			}
+
+			@Override
+			public void startSpan(Span span) {
+				events.add("<" + span.getName() + ">");
+			}
+
+			@Override
+			public void token(Token token, List<Span> openSpans) {
+				assertThat(token.getSpans()).isEmpty();
+				assertThat(openSpans).isEmpty();
+				events.add(token.getText());
+			}
+
+			@Override
+			public void endSpan(Span span) {
+				events.add("</" + span.getName() + ">");
+			}
+
+			@Override
+			public void discardSpan(Span span) {
+				events.add("discard " + span.getName());
+			}
+
+			@Override
+			public void endDocument(Document document) {
+				assertThat(document.getTokens()).isEmpty();
+				events.add("</" + document.getAnnotations().get(0).getValue() + ">");
+			}
+
+			@Override
+			public void discardDocument(Document document) {
+				events.add("discard document");
+			}
+		});
+
+		assertThat(events).containsExactly("<en>", "The", "TreeTagger", "is", "easy", "to", "use", ".", "</en>",
+				"<de>", "Der", "TreeTagger", "ist", "einfach", "zu", "nutzen", ".", "</de>");
+	}
+
+	@Test
+	public void whenDeserializingInParallelChunks_thenResultShouldEqualSequentialResult() throws IOException {
+		final URI uri = createTempFile(MIXED_CONTENT);
+
+		final Deserializer sequential = new Deserializer();
+		sequential.setLocation(uri);
+		final List<Document> expected = sequential.deserialize();
+		for (int chunkSize = 1; chunkSize < MIXED_CONTENT.length() + 2; chunkSize++) {
+			final Deserializer parallel = new Deserializer();
+			parallel.setLocation(uri);
+			parallel.setParallelism(3);
+			parallel.setChunkSize(chunkSize);
+			final List<Document> actual = parallel.deserialize();
+
+			assertThat(dump(actual)).as("chunk size " + chunkSize).isEqualTo(dump(expected));
+			assertThat(parallel.rowsWithTooLessColumns.toString())
+					.isEqualTo(sequential.rowsWithTooLessColumns.toString());
+			assertThat(parallel.rowsWithTooMuchColumns.toString())
+					.isEqualTo(sequential.rowsWithTooMuchColumns.toString());
+		}
+		assertThat(expected).hasSize(3);
+	}
+
+	@Test
+	public void whenDeserializingDocumentsByIndex_thenTheyShouldEqualDocumentsOfWholeFile() throws IOException {
+		final URI uri = createTempFile(MIXED_CONTENT);
+		final List<Document> expected = Treetagger.deserialize().from(uri);
+
+		final DocumentIndex index = DocumentIndex.scan(uri, StandardCharsets.UTF_8, "meta");
+
+		assertThat(index.size()).isEqualTo(expected.size());
+		final List<Document> actual = new ArrayList<>();
+		for (int documentIndex = 0; documentIndex < index.size(); documentIndex++) {
+			actual.add(Treetagger.deserialize().from(index, documentIndex));
+		}
+		assertThat(dump(actual)).isEqualTo(dump(expected));
+		assertThat(index.get(0).getAttributes()).containsEntry("lang", "en");
+		assertThat(index.get(1).getAttributes()).isEmpty();
+	}
+
+	@Test
+	public void whenDeserializing_thenIdsShouldBeSequentialPerDocument() throws IOException {
+		final URI uri = createTempFile(MIXED_CONTENT);
+
+		final List<Document> documents = Treetagger.deserialize().from(uri);
+
+		assertThat(documents).hasSize(3);
+		for (Document document : documents) {
+			for (int tokenIndex = 0; tokenIndex < document.getTokens().size(); tokenIndex++) {
+				assertThat(document.getTokens().get(tokenIndex).getId()).isEqualTo(tokenIndex);
+			}
+		}
+		final Token the = documents.get(0).getTokens().get(0);
+		final Token treeTagger = documents.get(0).getTokens().get(1);
+		assertThat(the.getSpans()).extracting("name", "id").containsExactly(tuple("s", 0));
+		// the empty span and the unclosed span are discarded, but keep their ids
+		assertThat(treeTagger.getSpans()).extracting("name", "id").containsExactly(tuple("np", 1), tuple("s", 0));
+		assertThat(documents.get(2).getTokens().get(0).getSpans()).extracting("name", "id")
+				.containsExactly(tuple("s", 0));
+	}
+
+	@Test
+	public void whenDeserializingInParallelWithSharedPool_thenEqualValuesShouldBeSameInstance() throws IOException {
+		final URI uri = createTempFile(MIXED_CONTENT);
+		final StringPool pool = new StringPool();
+		fixture.setLocation(uri);
+		fixture.setParallelism(3);
+		fixture.setChunkSize(16);
+		fixture.setStringPool(pool);
+
+		final List<Document> documents = fixture.deserialize();
+
+		final List<String> nnValues = new ArrayList<>();
+		for (Document document : documents) {
+			for (Token token : document.getTokens()) {
+				if ("NN".equals(token.getAnnotations().get(0).getValue())) {
+					nnValues.add(token.getAnnotations().get(0).getValue());
+				}
+			}
+		}
+		assertThat(nnValues).hasSize(2);
+		for (String nnValue : nnValues) {
+			assertThat(nnValue).isSameAs(pool.intern(new String("NN")));
+		}
+	}
+
+	@Test
+	public void whenDeserializingColumnarDocuments_thenResultShouldEqualObjectModel() throws IOException {
+		final URI uri = createTempFile(MIXED_CONTENT);
+		final List<Document> expected = Treetagger.deserialize().from(uri);
+
+		final List<Document> sequential = Treetagger.deserialize().withColumnarDocuments(true).from(uri);
+		final List<Document> parallel = Treetagger.deserialize().withColumnarDocuments(true).withParallelism(2)
+				.from(uri);
+
+		assertThat(sequential).hasOnlyElementsOfType(ColumnarDocument.class);
+		for (int documentIndex = 0; documentIndex < expected.size(); documentIndex++) {
+			assertThat(sequential.get(documentIndex).structurallyEquals(expected.get(documentIndex))).isTrue();
+		}
+		assertThat(dump(sequential)).isEqualTo(dump(expected));
+		assertThat(dump(parallel)).isEqualTo(dump(expected));
+	}
+
+	static URI createTempFile(String content) throws IOException {
+		final File file = File.createTempFile("deserializer", ".tt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return URI.createFileURI(file.getAbsolutePath());
+	}
+
+	/**
+	 * Returns a textual representation of the documents including the spans of
+	 * each token, which are not compared by
+	 * {@link Document#structurallyEquals(Object)}.
+	 */
+	static String dump(List<Document> documents) {
+		final StringBuilder dump = new StringBuilder();
+		for (Document document : documents) {
+			dump.append(document.getName()).append(document.getAnnotations()).append('\n');
+			for (Token token : document.getTokens()) {
+				dump.append(token).append('#').append(token.getId()).append(' ');
+				for (Span span : token.getSpans()) {
+					dump.append(span.getName()).append('#').append(span.getId()).append(span.getAnnotations())
+							.append(span.getTokens().size()).append(' ');
+				}
+				dump.append('\n');
+			}
+		}
+		return dump.toString();
 	}
 }
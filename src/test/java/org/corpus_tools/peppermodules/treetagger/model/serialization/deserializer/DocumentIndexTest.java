@@ -0,0 +1,117 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.corpus_tools.peppermodules.treetagger.model.impl.Treetagger;
+import org.eclipse.emf.common.util.URI;
+import org.junit.Test;
+
+public class DocumentIndexTest {
+
+	@Test
+	public void whenLoadingIndexOfMultiDocumentFile_thenSidecarShouldBeWrittenAndReused() throws IOException {
+		final URI uri = DeserializerTest.createTempFile(DeserializerTest.MIXED_CONTENT);
+		final File sidecar = new File(uri.toFileString() + DocumentIndex.SIDECAR_ENDING);
+		sidecar.deleteOnExit();
+
+		final DocumentIndex scanned = DocumentIndex.load(uri, "UTF-8", "meta");
+
+		assertThat(sidecar).exists();
+		final DocumentIndex cached = DocumentIndex.load(uri, "UTF-8", "meta");
+		assertThat(cached.size()).isEqualTo(scanned.size()).isEqualTo(3);
+		for (int documentIndex = 0; documentIndex < scanned.size(); documentIndex++) {
+			assertThat(cached.get(documentIndex).getOffset()).isEqualTo(scanned.get(documentIndex).getOffset());
+			assertThat(cached.get(documentIndex).getLineNumber())
+					.isEqualTo(scanned.get(documentIndex).getLineNumber());
+			assertThat(cached.get(documentIndex).getAttributes())
+					.isEqualTo(scanned.get(documentIndex).getAttributes());
+		}
+	}
+
+	@Test
+	public void whenSidecarIsTurnedOff_thenIndexShouldBeScannedWithoutWritingIt() throws IOException {
+		final URI uri = DeserializerTest.createTempFile(DeserializerTest.MIXED_CONTENT);
+		final File sidecar = new File(uri.toFileString() + DocumentIndex.SIDECAR_ENDING);
+		sidecar.deleteOnExit();
+
+		final DocumentIndex index = DocumentIndex.load(uri, "UTF-8", "meta", false);
+
+		assertThat(index.size()).isEqualTo(3);
+		assertThat(sidecar).doesNotExist();
+	}
+
+	@Test
+	public void whenFileHasOneDocument_thenNoSidecarShouldBeWritten() throws IOException {
+		final URI uri = DeserializerTest.createTempFile("<meta name=\"a\">\nThe\tDT\nend\tNN\n</meta>\n\n");
+		final File sidecar = new File(uri.toFileString() + DocumentIndex.SIDECAR_ENDING);
+		sidecar.deleteOnExit();
+
+		final DocumentIndex index = DocumentIndex.load(uri, "UTF-8", "meta");
+
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.get(0).getAttributes()).containsEntry("name", "a");
+		assertThat(sidecar).doesNotExist();
+	}
+
+	@Test
+	public void whenSecondDocumentIsNotClosed_thenOnlyTheFirstShouldBeCounted() throws IOException {
+		final URI uri = DeserializerTest.createTempFile("<meta>\na\n</meta>\n<meta>\nb\n");
+		new File(uri.toFileString() + DocumentIndex.SIDECAR_ENDING).deleteOnExit();
+
+		assertThat(DocumentIndex.load(uri, "UTF-8", "meta").size()).isEqualTo(1);
+		assertThat(DocumentIndex.countDocuments(uri, "UTF-8", "meta")).isEqualTo(1);
+	}
+
+	@Test
+	public void whenFileChangedAfterIndexing_thenSidecarShouldBeIgnored() throws IOException {
+		final URI uri = DeserializerTest.createTempFile(DeserializerTest.MIXED_CONTENT);
+		final File file = new File(uri.toFileString());
+		new File(uri.toFileString() + DocumentIndex.SIDECAR_ENDING).deleteOnExit();
+		DocumentIndex.load(uri, "UTF-8", "meta");
+
+		Files.write(file.toPath(), "<meta>\na\n</meta>\n<meta>\nb\n</meta>\n<meta>\nc\n</meta>\n<meta>\nd\n</meta>"
+				.getBytes(StandardCharsets.UTF_8));
+
+		assertThat(DocumentIndex.load(uri, "UTF-8", "meta").size()).isEqualTo(4);
+	}
+
+	@Test
+	public void whenEncodingCannotBeScanned_thenThereShouldBeNoIndex() throws IOException {
+		final URI uri = DeserializerTest.createTempFile(DeserializerTest.MIXED_CONTENT);
+
+		assertThat(DocumentIndex.load(uri, "UTF-16", "meta")).isNull();
+	}
+
+	@Test
+	public void whenEncodingCannotBeScanned_thenDocumentsShouldStillBeCounted() throws IOException {
+		final File file = File.createTempFile("deserializer", ".tt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), DeserializerTest.MIXED_CONTENT.getBytes(StandardCharsets.UTF_16));
+		final URI uri = URI.createFileURI(file.getAbsolutePath());
+
+		assertThat(DocumentIndex.countDocuments(uri, "UTF-16", "meta"))
+				.isEqualTo(Treetagger.deserialize().withFileEncoding("UTF-16").from(uri).size()).isEqualTo(3);
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer.LineScanner.LineType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the {@link LineScanner} with the regular expressions of
+ * {@link XMLUtils}, which define the grammar of tag lines.
+ */
+public class LineScannerTest {
+
+	private static final String[] FRAGMENTS = { "<", "</", "<?", "?>", ">", "/", "?", "\t", " ", "\r", "\n", "=",
+			" = ", "'", "\"", "&", "&amp;", "&lt;", "&#60;", "&#x3C;", "&#x;", "&#;", "&#xZ;", "#", ";", "x", "s",
+			"meta", "id", "x:y", "_", "-", ".", "0", "9", "é", "·", "̀", ";", "⁀", "　",
+			"\ud800", "\udc00", "￾", "\u0001", " id='1'", " name=\"a b\"", "<s", "</s>", "<meta", "<?xml" };
+
+	private static final String[] NAMES = { "s", "meta", "x:y", "é", "_1" };
+
+	private LineScanner fixture;
+
+	@Before
+	public void beforeEach() {
+		fixture = new LineScanner();
+	}
+
+	@Test
+	public void whenScanningTagLines_thenTypeNameAndAttributesShouldBeExtracted() {
+		assertThat(fixture.scan("<s id='1' name = \"&amp;x\">\t\t")).isEqualTo(LineType.START_TAG);
+		assertThat(fixture.getTagName()).isEqualTo("s");
+		assertThat(fixture.getAttributes()).hasSize(2).containsEntry("id", "1").containsEntry("name", "&amp;x");
+
+		assertThat(fixture.scan("</s >")).isEqualTo(LineType.END_TAG);
+		assertThat(fixture.getTagName()).isEqualTo("s");
+		assertThat(fixture.getAttributes()).isEmpty();
+
+		assertThat(fixture.scan("<?xml version=\"1.0\"?>")).isEqualTo(LineType.PROCESSING_INSTRUCTION);
+		assertThat(fixture.getTagName()).isNull();
+	}
+
+	@Test
+	public void whenScanningMalformedTagLines_thenTheyShouldBeTokens() {
+		for (String line : new String[] { "<", "<>", "< s>", "<s", "<s id>", "<s id='a<b'>", "<s id='a&b'>",
+				"<s id='1'>x", "</s id='1'>", "<?xml?>x", "<?xml", "<s/>", "Hello\tNN\thello" }) {
+			assertThat(fixture.scan(line)).as(line).isEqualTo(LineType.TOKEN);
+			assertThat(fixture.getTagName()).as(line).isNull();
+		}
+	}
+
+	@Test
+	public void whenScanningRandomLines_thenResultShouldMatchXMLUtils() {
+		final Random random = new Random(4711);
+		for (int i = 0; i < 200000; i++) {
+			final StringBuilder line = new StringBuilder();
+			if (random.nextBoolean()) {
+				line.append(random.nextBoolean() ? "<" : "</");
+				line.append(NAMES[random.nextInt(NAMES.length)]);
+			}
+			final int numOfFragments = random.nextInt(8);
+			for (int f = 0; f < numOfFragments; f++) {
+				line.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			if (random.nextBoolean()) {
+				line.append(">");
+				if (random.nextInt(4) == 0) {
+					line.append("\t");
+				}
+			}
+			assertScansLikeXMLUtils(line.toString());
+		}
+	}
+
+	private void assertScansLikeXMLUtils(String line) {
+		final LineType expectedType;
+		String expectedName = null;
+		Map<String, String> expectedAttributes = Collections.emptyMap();
+		if (XMLUtils.isProcessingInstructionTag(line)) {
+			expectedType = LineType.PROCESSING_INSTRUCTION;
+		} else if (XMLUtils.isStartTag(line)) {
+			expectedType = LineType.START_TAG;
+			expectedName = XMLUtils.extractTagName(line);
+			expectedAttributes = XMLUtils.extractAttributeValuePairs(line);
+		} else if (XMLUtils.isEndTag(line)) {
+			expectedType = LineType.END_TAG;
+			expectedName = XMLUtils.extractTagName(line);
+		} else {
+			expectedType = LineType.TOKEN;
+		}
+		assertThat(fixture.scan(line)).as(line).isEqualTo(expectedType);
+		assertThat(fixture.getTagName()).as(line).isEqualTo(expectedName);
+		assertThat(fixture.getAttributes()).as(line).isEqualTo(expectedAttributes);
+	}
+}
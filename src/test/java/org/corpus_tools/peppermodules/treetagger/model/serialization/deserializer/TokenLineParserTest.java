@@ -0,0 +1,81 @@
+/**
+ * Copyright 2009 Humboldt-Universität zu Berlin, INRIA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ *
+ */
+package org.corpus_tools.peppermodules.treetagger.model.serialization.deserializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.corpus_tools.peppermodules.treetagger.model.Token;
+import org.corpus_tools.peppermodules.treetagger.model.TreetaggerFactory;
+import org.corpus_tools.peppermodules.treetagger.model.impl.StringPool;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenLineParserTest {
+
+	private TokenLineParser fixture;
+
+	@Before
+	public void beforeEach() {
+		fixture = new TokenLineParser(Arrays.asList("tok", "pos", "lemma"), new StringPool());
+	}
+
+	@Test
+	public void whenSplittingColumns_thenResultShouldEqualSplitAndTrim() {
+		for (String line : new String[] { "The\tDT\tthe", " easy \t JJ\t\teasy ", "\tNN", "is\tVBZ\t\t",
+				"is\tVBZ\t \t", "is", "", "\t\t", "a\u0001\tb" }) {
+			final String[] expected = line.split(Deserializer.COLUMN_SEPARATOR);
+			final int numOfColumns = fixture.splitColumns(line);
+			final Token token = TreetaggerFactory.eINSTANCE.createToken();
+			fixture.createAnnotationsForToken(token, line, numOfColumns);
+
+			assertThat(numOfColumns).as(line).isEqualTo(expected.length);
+			for (int i = 1; i < expected.length; i++) {
+				assertThat(token.getAnnotations().get(i - 1).getValue()).as(line).isEqualTo(expected[i].trim());
+			}
+		}
+	}
+
+	@Test
+	public void whenFindingColumnNameForLineNumber_thenReturnCorrectColumnName() {
+
+		assertThat(fixture.findColumnName(0)).isEqualTo("tok");
+		assertThat(fixture.findColumnName(1)).isEqualTo("pos");
+		assertThat(fixture.findColumnName(2)).isEqualTo("lemma");
+		assertThat(fixture.findColumnName(3)).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
+	}
+
+	@Test
+	public void whenCreatingAnnotationsForToken_thenTokenShouldContainAllAnnotations() {
+		Token token = TreetaggerFactory.eINSTANCE.createToken();
+		String line = "TreeTagger\tNP\tTreeTagger\tadditionalColumn1\tadditionalColumn2";
+
+		fixture.createAnnotationsForToken(token, line, fixture.splitColumns(line));
+
+		assertThat(token.getAnnotations()).hasSize(4);
+		assertThat(token.getAnnotations().get(0).getName()).isEqualTo(Deserializer.COLUMN_POS);
+		assertThat(token.getAnnotations().get(0).getValue()).isEqualTo("NP");
+		assertThat(token.getAnnotations().get(1).getName()).isEqualTo(Deserializer.COLUMN_LEMMA);
+		assertThat(token.getAnnotations().get(1).getValue()).isEqualTo("TreeTagger");
+		assertThat(token.getAnnotations().get(2).getName()).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
+		assertThat(token.getAnnotations().get(2).getValue()).isEqualTo("additionalColumn1");
+		assertThat(token.getAnnotations().get(3).getName()).isEqualTo(Deserializer.DEFAULT_ANNOTATION_NAME);
+		assertThat(token.getAnnotations().get(3).getValue()).isEqualTo("additionalColumn2");
+	}
+}